@@ -0,0 +1,43 @@
+package com.example.bankcards.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Аргументы: регулярка бенчмарков и каталог для результатов.
+// Каждый прогон пишет отдельный JSON, чтобы сравнивать прогоны между собой.
+public class BenchmarkRunner {
+
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*";
+        Path resultDir = Path.of(args.length > 1 ? args[1] : "target/jmh");
+        Path resultFile = resultDir.resolve("jmh-" + LocalDateTime.now().format(RUN_ID) + ".json");
+
+        try {
+            Files.createDirectories(resultDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create " + resultDir, e);
+        }
+
+        Options options = new OptionsBuilder()
+                .include("com\\.example\\.bankcards\\.benchmark\\." + include)
+                .forks(1)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.toString())
+                .build();
+
+        new Runner(options).run();
+        System.out.println("Results: " + resultFile.toAbsolutePath());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.CardService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Маппинг карты в ответ одиночных операций (create/block/activate/deposit) и маскирование номера
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CardMappingBenchmark {
+
+    private Card card;
+    private String cardNumber;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+
+        card = new Card();
+        card.setId(42L);
+        card.setCardNumber("**** **** **** 4444");
+        card.setCardHolder("User Test");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("1000.00"));
+        card.setUser(user);
+
+        cardNumber = "1111222233334444";
+    }
+
+    @Benchmark
+    public CardDto convertToDto() {
+        return CardService.convertToDto(card);
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return CardService.maskCardNumber(cardNumber);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.service.EncryptionService;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Одиночные вызовы против батча; legacyEncrypt — старый путь с Cipher.getInstance на каждый вызов
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EncryptionServiceBenchmark {
+
+    private static final SecretKeySpec LEGACY_KEY =
+            new SecretKeySpec("1234567890123456".getBytes(StandardCharsets.UTF_8), "AES");
+
+    @Param({"1000", "10000"})
+    private int batchSize;
+
+    private EncryptionService encryptionService;
+    private List<String> cardNumbers;
+    private List<String> encrypted;
+
+    @Setup
+    public void setUp() {
+        encryptionService = new EncryptionService();
+        cardNumbers = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            cardNumbers.add(String.format("4%015d", i));
+        }
+        encrypted = encryptionService.encryptAll(cardNumbers);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int legacyEncryptLoop() throws Exception {
+        int total = 0;
+        for (int i = 0; i < 1000; i++) {
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.ENCRYPT_MODE, LEGACY_KEY);
+            byte[] out = cipher.doFinal(cardNumbers.get(i % batchSize).getBytes(StandardCharsets.UTF_8));
+            total += Base64.getEncoder().encodeToString(out).length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int encryptLoop() {
+        int total = 0;
+        for (int i = 0; i < 1000; i++) {
+            total += encryptionService.encrypt(cardNumbers.get(i % batchSize)).length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int decryptLoop() {
+        int total = 0;
+        for (int i = 0; i < 1000; i++) {
+            total += encryptionService.decrypt(encrypted.get(i % batchSize)).length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public List<String> encryptAll() {
+        return encryptionService.encryptAll(cardNumbers);
+    }
+
+    @Benchmark
+    public List<String> decryptAll() {
+        return encryptionService.decryptAll(encrypted);
+    }
+}
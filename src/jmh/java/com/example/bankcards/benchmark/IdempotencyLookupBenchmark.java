@@ -0,0 +1,74 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.service.IdempotencyCache;
+import com.example.bankcards.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость проверки Idempotency-Key на горячем пути: replay — повтор из индекса в памяти целиком
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IdempotencyLookupBenchmark {
+
+    private static final int KEYS = 100_000;
+
+    private IdempotencyService service;
+    private IdempotencyCache cache;
+    private TransferRequest request;
+
+    @Setup
+    public void setUp() {
+        // Без БД: захват ключа всегда успешен, ответ сохраняется только в индекс
+        IdempotencyKeyRepository repository = new IdempotencyKeyRepository(null) {
+            @Override
+            public boolean tryClaim(Long userId, String key, String operation, String requestHash,
+                                    LocalDateTime now, LocalDateTime expiresAt) {
+                return true;
+            }
+
+            @Override
+            public void complete(Long userId, String key, String responseBody) {
+            }
+        };
+        service = new IdempotencyService(repository, new ObjectMapper(), KEYS * 2, Duration.ofHours(1),
+                Duration.ofMinutes(1));
+        request = new TransferRequest(1L, 2L, BigDecimal.TEN);
+        service.execute(1L, "replayed-key", "transfer", request, String.class, complete -> "Transfer successful");
+
+        cache = new IdempotencyCache(KEYS * 2);
+        long expiresAt = System.currentTimeMillis() + 3_600_000;
+        for (int i = 0; i < KEYS; i++) {
+            cache.put("1:key-" + i, new IdempotencyCache.Entry("hash", "\"ok\"", expiresAt));
+        }
+    }
+
+    @Benchmark
+    public String replay() {
+        return service.execute(1L, "replayed-key", "transfer", request, String.class, complete -> "Transfer successful");
+    }
+
+    @Benchmark
+    public String requestHash() {
+        return service.requestHash("transfer", request);
+    }
+
+    @Benchmark
+    public IdempotencyCache.Entry cacheHit() {
+        return cache.get("1:key-4242");
+    }
+
+    @Benchmark
+    public IdempotencyCache.Entry cacheMiss() {
+        return cache.get("1:missing");
+    }
+}
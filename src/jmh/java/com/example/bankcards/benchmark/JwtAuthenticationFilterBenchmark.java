@@ -0,0 +1,75 @@
+package com.example.bankcards.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import com.example.bankcards.config.LogSampler;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.JwtTokenCache;
+import com.example.bankcards.security.TokenRevocationService;
+import com.example.bankcards.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+// Стоимость фильтра на один запрос: cached — повторный токен из JwtTokenCache,
+// uncached — парсинг, подпись и загрузка пользователя (кэш выключен), anonymous — запрос без заголовка
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "U2VjdXJlS2V5Rm9yQmFuay1DbGFzc0FwcC0yMDI1LURldmVsb3BlZA==";
+    // Mockito-мок цепочки запоминал бы каждый вызов и рос бы в памяти за прогон
+    private static final FilterChain NOOP_CHAIN = (request, response) -> { };
+
+    @Param({"cached", "uncached", "anonymous"})
+    private String path;
+
+    private JwtAuthenticationFilter filter;
+    private String authHeader;
+
+    @Setup
+    public void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("user");
+        user.setRole(Role.ROLE_USER);
+
+        JwtService jwtService = new JwtService(SECRET, 3_600_000);
+        UserService userService = Mockito.mock(UserService.class);
+        Mockito.when(userService.loadUserByUsername("user")).thenReturn(user);
+
+        JwtTokenCache cache = new JwtTokenCache("uncached".equals(path) ? 0 : 10_000);
+        filter = new JwtAuthenticationFilter(jwtService, userService, cache,
+                Mockito.mock(TokenRevocationService.class), new SimpleMeterRegistry(), new LogSampler(100));
+        authHeader = "anonymous".equals(path) ? null : "Bearer " + jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.setServletPath("/cards");
+        if (authHeader != null) {
+            request.addHeader("Authorization", authHeader);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NOOP_CHAIN);
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import com.example.bankcards.config.CorrelationIdFilter;
+import com.example.bankcards.config.LogSampler;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.JwtTokenCache;
+import com.example.bankcards.security.TokenRevocationService;
+import com.example.bankcards.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+// requestsPerSecond через JWT-фильтр на кэшированном токене при уровне INFO, как в проде:
+// legacyStdout — три println, которые фильтр делал раньше, structured — CorrelationIdFilter + SLF4J с сэмплингом
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtFilterLoggingBenchmark {
+
+    private static final String SECRET = "U2VjdXJlS2V5Rm9yQmFuay1DbGFzc0FwcC0yMDI1LURldmVsb3BlZA==";
+    private static final FilterChain NOOP_CHAIN = (request, response) -> { };
+
+    private JwtAuthenticationFilter jwtFilter;
+    private CorrelationIdFilter correlationFilter;
+    private String authHeader;
+
+    @Setup
+    public void setUp() {
+        // без logback-spring.xml Logback по умолчанию пишет DEBUG в консоль
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("user");
+        user.setRole(Role.ROLE_USER);
+
+        JwtService jwtService = new JwtService(SECRET, 3_600_000);
+        UserService userService = Mockito.mock(UserService.class);
+        Mockito.when(userService.loadUserByUsername("user")).thenReturn(user);
+
+        jwtFilter = new JwtAuthenticationFilter(jwtService, userService, new JwtTokenCache(10_000),
+                Mockito.mock(TokenRevocationService.class), new SimpleMeterRegistry(), new LogSampler(100));
+        correlationFilter = new CorrelationIdFilter();
+        authHeader = "Bearer " + jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse structured() throws Exception {
+        MockHttpServletRequest request = request();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        correlationFilter.doFilter(request, response, (rq, rs) -> jwtFilter.doFilter(rq, rs, NOOP_CHAIN));
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse legacyStdout() throws Exception {
+        MockHttpServletRequest request = request();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        System.out.println("=== JWT FILTER ===");
+        System.out.println("Request: " + request.getRequestURI());
+        System.out.println("Auth header: " + request.getHeader("Authorization"));
+        jwtFilter.doFilter(request, response, NOOP_CHAIN);
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+
+    // OncePerRequestFilter помечает запрос атрибутом, поэтому на каждый вызов нужен новый
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.setServletPath("/cards");
+        request.addHeader("Authorization", authHeader);
+        return request;
+    }
+}
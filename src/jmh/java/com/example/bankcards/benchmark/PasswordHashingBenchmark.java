@@ -0,0 +1,46 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.BoundedPasswordEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// Проверка пароля при логине: strength совпадает с app.auth.hashing.bcrypt-strength,
+// bounded — тот же BCrypt через пул BoundedPasswordEncoder (передача в поток и обратно)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PasswordHashingBenchmark {
+
+    @Param({"10"})
+    private int strength;
+
+    private BCryptPasswordEncoder bcrypt;
+    private BoundedPasswordEncoder bounded;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        bcrypt = new BCryptPasswordEncoder(strength);
+        bounded = new BoundedPasswordEncoder(bcrypt, 1, 64, 60_000);
+        hash = bcrypt.encode("user123");
+    }
+
+    @TearDown
+    public void tearDown() {
+        bounded.close();
+    }
+
+    @Benchmark
+    public boolean bcryptMatches() {
+        return bcrypt.matches("user123", hash);
+    }
+
+    @Benchmark
+    public boolean boundedMatches() {
+        return bounded.matches("user123", hash);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.service.CardFingerprintService;
+import com.example.bankcards.service.EncryptionService;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+// Заполняет cards.card_fingerprint для уже существующих карт пачками по id
+public class CardFingerprintBackfillChange implements CustomTaskChange {
+
+    private String fingerprintKey;
+    private String batchSize = "500";
+    private int updated;
+
+    public void setFingerprintKey(String fingerprintKey) {
+        this.fingerprintKey = fingerprintKey;
+    }
+
+    public void setBatchSize(String batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        EncryptionService encryptionService = new EncryptionService();
+        CardFingerprintService fingerprintService = new CardFingerprintService(fingerprintKey);
+        int limit = Integer.parseInt(batchSize);
+
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, encrypted_card_number FROM cards " +
+                        "WHERE id > ? AND card_fingerprint IS NULL ORDER BY id LIMIT ?");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE cards SET card_fingerprint = ? WHERE id = ?")) {
+
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = new ArrayList<>(limit);
+                List<String> encrypted = new ArrayList<>(limit);
+
+                select.setLong(1, lastId);
+                select.setInt(2, limit);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                        encrypted.add(rs.getString(2));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                List<String> cardNumbers = encryptionService.decryptAll(encrypted);
+                for (int i = 0; i < ids.size(); i++) {
+                    update.setString(1, fingerprintService.fingerprint(cardNumbers.get(i)));
+                    update.setLong(2, ids.get(i));
+                    update.addBatch();
+                }
+                update.executeBatch();
+
+                updated += ids.size();
+                lastId = ids.get(ids.size() - 1);
+            }
+        } catch (Exception e) {
+            throw new CustomChangeException("Card fingerprint backfill failed", e);
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Card fingerprints backfilled for " + updated + " cards";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        errors.checkRequiredField("fingerprintKey", fingerprintKey);
+        return errors;
+    }
+}
@@ -5,8 +5,12 @@ import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.BalanceSummaryService;
+import com.example.bankcards.service.CardFingerprintService;
+import com.example.bankcards.service.CardService;
 import com.example.bankcards.service.EncryptionService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -14,6 +18,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class DataInitializer implements CommandLineRunner {
@@ -21,6 +26,8 @@ public class DataInitializer implements CommandLineRunner {
     private final UserRepository userRepository;
     private final CardRepository cardRepository;
     private final EncryptionService encryptionService;
+    private final CardFingerprintService fingerprintService;
+    private final BalanceSummaryService balanceSummaryService;
     private final PasswordEncoder passwordEncoder;
 
     @Override
@@ -32,7 +39,7 @@ public class DataInitializer implements CommandLineRunner {
             admin.setEmail("admin@bank.com");
             admin.setRole(Role.ROLE_ADMIN);
             userRepository.save(admin);
-            System.out.println("Admin user created: admin/admin123");
+            log.info("Admin user created: admin/admin123");
         }
 
         // Создаем тестового user пользователя
@@ -44,27 +51,28 @@ public class DataInitializer implements CommandLineRunner {
             user.setEmail("user@bank.com");
             user.setRole(Role.ROLE_USER);
             userRepository.save(user);
-            System.out.println("User created: user/user123");
+            log.info("User created: user/user123");
         } else {
             user = userRepository.findByUsername("user").get();
         }
         if (cardRepository.findByUserId(user.getId()).isEmpty()) {
             createTestCard(user, "1111222233334444", "User Test 1");
             createTestCard(user, "5555666677778888", "User Test 2");
-            System.out.println("Two test cards created for user 'user'");
+            log.info("Two test cards created for user 'user'");
         }
     }
 
     private void createTestCard(User user, String cardNumber, String cardHolder) {
-        String encryptedNumber = encryptionService.encrypt(cardNumber);
+        String fingerprint = fingerprintService.fingerprint(cardNumber);
 
-        if (cardRepository.existsByEncryptedCardNumber(encryptedNumber)) {
+        if (cardRepository.existsByCardFingerprint(fingerprint)) {
             return; // если карта уже есть, пропускаем
         }
 
         Card card = new Card();
-        card.setCardNumber(maskCardNumber(cardNumber));
-        card.setEncryptedCardNumber(encryptedNumber);
+        card.setCardNumber(CardService.maskCardNumber(cardNumber));
+        card.setEncryptedCardNumber(encryptionService.encrypt(cardNumber));
+        card.setCardFingerprint(fingerprint);
         card.setCardHolder(cardHolder);
         card.setExpirationDate(LocalDate.now().plusYears(2));
         card.setStatus(CardStatus.ACTIVE);
@@ -72,12 +80,6 @@ public class DataInitializer implements CommandLineRunner {
         card.setUser(user);
 
         cardRepository.save(card);
-    }
-
-    private String maskCardNumber(String cardNumber) {
-        if (cardNumber.length() >= 4) {
-            return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
-        }
-        return cardNumber;
+        balanceSummaryService.onCardCreated(user.getId(), card.getBalance(), true);
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.bankcards.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пропускает каждое N-е событие: частые DEBUG-сообщения на пути запроса не забивают очередь логов.
+// Вызывать только после log.isDebugEnabled(), чтобы при выключенном уровне не трогать счётчик.
+public class LogSampler {
+
+    private final long rate;
+    private final AtomicLong events = new AtomicLong();
+
+    public LogSampler(long rate) {
+        this.rate = Math.max(1, rate);
+    }
+
+    public boolean sample() {
+        return rate == 1 || events.getAndIncrement() % rate == 0;
+    }
+}
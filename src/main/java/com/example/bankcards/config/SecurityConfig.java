@@ -1,9 +1,14 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.BoundedPasswordEncoder;
 import com.example.bankcards.security.JwtAuthenticationFilter;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.JwtTokenCache;
+import com.example.bankcards.security.TokenRevocationService;
 import com.example.bankcards.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,8 +31,13 @@ public class SecurityConfig {
     private final JwtService jwtService;
 
     @Bean
-    public JwtAuthenticationFilter jwtAuthenticationFilter(UserService userService) {
-        return new JwtAuthenticationFilter(jwtService, userService);
+    public JwtAuthenticationFilter jwtAuthenticationFilter(UserService userService,
+                                                           JwtTokenCache tokenCache,
+                                                           TokenRevocationService revocations,
+                                                           MeterRegistry meterRegistry,
+                                                           @Value("${app.logging.debug-sample-rate:100}") long sampleRate) {
+        return new JwtAuthenticationFilter(jwtService, userService, tokenCache, revocations, meterRegistry,
+                new LogSampler(sampleRate));
     }
 
     @Bean
@@ -46,7 +56,9 @@ public class SecurityConfig {
                                 "/webjars/**",
                                 "/api/swagger-ui/**",
                                 "/api-docs/**").permitAll()
-                        .requestMatchers("/api/actuator/health").permitAll()
+                        // пути внутри context-path /api; метрики и остальной actuator — только администратору
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
@@ -59,15 +71,21 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider(UserService userService) {
+    public AuthenticationProvider authenticationProvider(UserService userService, PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
+    // Пул по умолчанию — половина ядер: остальное CPU остаётся переводам и картам
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${app.auth.hashing.threads:0}") int threads,
+            @Value("${app.auth.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.auth.hashing.timeout-ms:5000}") long timeoutMillis,
+            @Value("${app.auth.hashing.bcrypt-strength:10}") int strength) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, timeoutMillis);
     }
 }
@@ -1,29 +1,58 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.ExportFormat;
 import com.example.bankcards.dto.DepositRequest;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.dto.TransactionFilter;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.TransactionType;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.service.BulkCardService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.ExportService;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.TransactionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/cards")
 @RequiredArgsConstructor
 public class CardController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final CardService cardService;
+    private final TransactionService transactionService;
+    private final ExportService exportService;
+    private final IdempotencyService idempotencyService;
+    private final BulkCardService bulkCardService;
 
     @GetMapping
     public ResponseEntity<Page<CardDto>> getUserCards(
@@ -34,12 +63,52 @@ public class CardController {
         return ResponseEntity.ok(cardService.getUserCards(user.getId(), pageable));
     }
 
+    // Keyset-режим: GET /cards?after=<курсор>&size=..., пустой after — первая страница
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPage<CardDto>> getUserCardsAfter(
+            @AuthenticationPrincipal User user,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(cardService.getUserCards(user.getId(), after, size));
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<CardDto> createCard(@Valid @RequestBody CreateCardRequest request) {
         return ResponseEntity.ok(cardService.createCard(request));
     }
 
+    // Ответ — NDJSON: по строке на каждую отклонённую запись по мере обработки, последней строкой — итог
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void createCardsBulk(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        prepareBulkResponse(response);
+        bulkCardService.importJson(request.getInputStream(), response.getWriter());
+    }
+
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void createCardsBulkCsv(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        prepareBulkResponse(response);
+        bulkCardService.importCsv(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8),
+                response.getWriter());
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void uploadCardsBulk(@RequestParam("file") MultipartFile file,
+                                HttpServletResponse response) throws IOException {
+        prepareBulkResponse(response);
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            bulkCardService.importCsv(reader, response.getWriter());
+        }
+    }
+
+    private void prepareBulkResponse(HttpServletResponse response) {
+        response.setContentType(ExportFormat.NDJSON.getContentType());
+        response.setCharacterEncoding("UTF-8");
+    }
+
     @PostMapping("/{id}/block")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public ResponseEntity<CardDto> blockCard(@PathVariable Long id, @AuthenticationPrincipal User user) {
@@ -58,6 +127,20 @@ public class CardController {
         return ResponseEntity.ok(cardService.getCardBalance(id, user.getId()));
     }
 
+    @GetMapping("/{id}/transactions")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<CursorPage<TransactionDto>> getCardTransactions(
+            @PathVariable Long id,
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        TransactionFilter filter = new TransactionFilter(type, from, to);
+        return ResponseEntity.ok(transactionService.getCardTransactions(id, user.getId(), filter, cursor, size));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteCard(@PathVariable Long id) {
@@ -69,18 +152,35 @@ public class CardController {
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public ResponseEntity<String> transferBetweenCards(
             @AuthenticationPrincipal User user,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody TransferRequest request) {
 
-        cardService.transferBetweenCards(user.getId(), request);
-        return ResponseEntity.ok("Transfer successful");
+        String response = "Transfer successful";
+        return ResponseEntity.ok(idempotencyService.execute(user.getId(), idempotencyKey, "transfer", request,
+                String.class, complete -> {
+                    cardService.transferBetweenCards(user.getId(), request, () -> complete.accept(response));
+                    return response;
+                }));
+    }
+
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<BatchTransferResponse> transferBatch(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody BatchTransferRequest request) {
+        return ResponseEntity.ok(cardService.transferBatch(user.getId(), request));
     }
 
     @PostMapping("/{id}/deposit")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<CardDto> depositToCard(
+            @AuthenticationPrincipal User user,
             @PathVariable Long id,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody DepositRequest request) {
-        return ResponseEntity.ok(cardService.depositToCard(id, request.getAmount()));
+        return ResponseEntity.ok(idempotencyService.execute(user.getId(), idempotencyKey, "deposit",
+                List.of(id, request.getAmount()), CardDto.class,
+                complete -> cardService.depositToCard(id, request.getAmount(), complete)));
     }
 
     @GetMapping("/all")
@@ -91,4 +191,22 @@ public class CardController {
         Pageable pageable = PageRequest.of(page, size);
         return ResponseEntity.ok(cardService.getAllCards(pageable));
     }
+
+    @GetMapping(value = "/all", params = "after")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<CardDto>> getAllCardsAfter(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(cardService.getAllCards(after, size));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportCards(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=cards." + format.getExtension());
+        exportService.exportCards(format, response.getWriter());
+    }
 }
\ No newline at end of file
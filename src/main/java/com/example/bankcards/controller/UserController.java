@@ -1,11 +1,21 @@
 package com.example.bankcards.controller;
+import com.example.bankcards.dto.BalanceSummaryDto;
+import com.example.bankcards.dto.ExportFormat;
 import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.BalanceSummaryService;
+import com.example.bankcards.service.ExportService;
 import com.example.bankcards.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -14,6 +24,8 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final ExportService exportService;
+    private final BalanceSummaryService balanceSummaryService;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -21,6 +33,28 @@ public class UserController {
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
+    @GetMapping("/me/summary")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<BalanceSummaryDto> getMySummary(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(balanceSummaryService.getSummary(user.getId()));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportUsers(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + format.getExtension());
+        exportService.exportUsers(format, response.getWriter());
+    }
+
+    @PatchMapping("/{id}/role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserDto> changeRole(@PathVariable Long id, @RequestParam Role role) {
+        return ResponseEntity.ok(userService.changeRole(id, role));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class BalanceSummaryDto {
+    private BigDecimal totalBalance;
+    private int activeCards;
+    private LocalDateTime lastActivity;
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransferRequest {
+
+    public enum Mode {
+        ALL_OR_NOTHING, // одна транзакция: либо все переводы, либо ни одного
+        BEST_EFFORT     // каждый перевод независимо, результат по каждому элементу
+    }
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@Valid @NotNull TransferRequest> transfers;
+
+    @NotNull
+    private Mode mode = Mode.ALL_OR_NOTHING;
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Отклонённая строка массового выпуска; index — номер записи во входных данных с нуля, без заголовка CSV
+@Data
+@AllArgsConstructor
+public class BulkCardError {
+    private int index;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Последняя строка ответа массового выпуска
+@Data
+@AllArgsConstructor
+public class BulkCardSummary {
+    private int total;
+    private int created;
+    private int failed;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+}
@@ -1,12 +1,16 @@
 package com.example.bankcards.dto;
 
 import com.example.bankcards.entity.CardStatus;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class CardDto {
     private Long id;
     private String cardNumber;
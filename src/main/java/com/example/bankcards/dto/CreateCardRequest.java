@@ -4,6 +4,7 @@ import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import java.time.LocalDate;
 
@@ -14,6 +15,7 @@ public class CreateCardRequest {
     private String cardNumber;
 
     @NotBlank
+    @Size(max = 255) // cards.card_holder VARCHAR(255)
     private String cardHolder;
 
     @NotNull
@@ -9,4 +9,5 @@ public class JwtResponse {
     private String type;
     private String username;
     private String role;
+    private String refreshToken;
 }
\ No newline at end of file
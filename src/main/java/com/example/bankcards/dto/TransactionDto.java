@@ -0,0 +1,19 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class TransactionDto {
+    private Long id;
+    private TransactionType type;
+    private BigDecimal amount;
+    private Long fromCardId;
+    private Long toCardId;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.TransactionType;
+
+import java.time.LocalDateTime;
+
+// Все поля необязательны: null — фильтр не применяется
+public record TransactionFilter(TransactionType type, LocalDateTime from, LocalDateTime to) {
+}
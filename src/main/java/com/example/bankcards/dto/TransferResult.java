@@ -0,0 +1,20 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TransferResult {
+    private int index;
+    private boolean success;
+    private String error;
+
+    public static TransferResult ok(int index) {
+        return new TransferResult(index, true, null);
+    }
+
+    public static TransferResult failed(int index, String error) {
+        return new TransferResult(index, false, error);
+    }
+}
@@ -11,7 +11,8 @@ import java.time.LocalDate;
 @Data
 public class Card {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "card_number", nullable = false)
@@ -20,6 +21,9 @@ public class Card {
     @Column(name = "encrypted_card_number", nullable = false, unique = true)
     private String encryptedCardNumber;
 
+    @Column(name = "card_fingerprint", nullable = false, unique = true, length = 64)
+    private String cardFingerprint;
+
     @Column(name = "card_holder", nullable = false)
     private String cardHolder;
 
@@ -35,5 +39,9 @@ public class Card {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
 
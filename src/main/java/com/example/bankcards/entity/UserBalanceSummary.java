@@ -0,0 +1,26 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "user_balance_summaries")
+@Data
+public class UserBalanceSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "total_balance", nullable = false)
+    private BigDecimal totalBalance;
+
+    @Column(name = "active_cards", nullable = false)
+    private int activeCards;
+
+    @Column(name = "last_activity")
+    private LocalDateTime lastActivity;
+}
@@ -0,0 +1,73 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Пакетные JDBC-операции для массовых переводов и выпуска карт: один round trip на пачку вместо одного на строку
+@Repository
+@RequiredArgsConstructor
+public class CardBatchRepository {
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Блокирует карты пользователя в порядке id и возвращает их балансы; чужих и несуществующих карт в ответе нет
+    public SortedMap<Long, BigDecimal> lockBalances(Collection<Long> cardIds, Long userId) {
+        List<Object> args = new ArrayList<>(cardIds);
+        args.add(userId);
+        SortedMap<Long, BigDecimal> balances = new TreeMap<>();
+        jdbcTemplate.query(
+                "SELECT id, balance FROM cards WHERE id IN (" + String.join(",", Collections.nCopies(cardIds.size(), "?")) +
+                        ") AND user_id = ? ORDER BY id FOR UPDATE",
+                (RowCallbackHandler) rs -> balances.put(rs.getLong(1), rs.getBigDecimal(2)),
+                args.toArray());
+        return balances;
+    }
+
+    // Ключи применяются в порядке итерации map — вызывающий передаёт их отсортированными по id
+    public int[] applyBalanceDeltas(Map<Long, BigDecimal> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((cardId, delta) -> args.add(new Object[]{delta, cardId, delta}));
+        return jdbcTemplate.batchUpdate(
+                "UPDATE cards SET balance = balance + ?, version = version + 1 " +
+                        "WHERE id = ? AND balance + ? >= 0",
+                args);
+    }
+
+    // id и version берутся из DEFAULT столбцов. Каждая строка получает своё значение cards_seq,
+    // поэтому с диапазонами, которые Hibernate выделяет себе из той же последовательности, id не пересекаются.
+    public void insertCards(List<NewCard> cards) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO cards (card_number, encrypted_card_number, card_fingerprint, card_holder, " +
+                        "expiration_date, status, balance, user_id) VALUES (?, ?, ?, ?, ?, 'ACTIVE', 0, ?)",
+                cards, INSERT_BATCH_SIZE, (ps, card) -> {
+                    ps.setString(1, card.maskedNumber());
+                    ps.setString(2, card.encryptedNumber());
+                    ps.setString(3, card.fingerprint());
+                    ps.setString(4, card.cardHolder());
+                    ps.setObject(5, card.expirationDate());
+                    ps.setLong(6, card.userId());
+                });
+    }
+
+    public record NewCard(String maskedNumber,
+                          String encryptedNumber,
+                          String fingerprint,
+                          String cardHolder,
+                          LocalDate expirationDate,
+                          Long userId) {
+    }
+}
@@ -1,17 +1,84 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.entity.Card;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface CardRepository extends JpaRepository<Card, Long> {
     Page<Card> findByUserId(Long userId, Pageable pageable);
     List<Card> findByUserId(Long userId);
-    Optional<Card> findByEncryptedCardNumber(String encryptedCardNumber);
-    boolean existsByEncryptedCardNumber(String encryptedCardNumber);
+
+    // Листинги проецируются сразу в CardDto: без управляемых сущностей, снапшотов и загрузки User
+    String CARD_DTO = "select new com.example.bankcards.dto.CardDto(" +
+            "c.id, c.cardNumber, c.cardHolder, c.expirationDate, c.status, c.balance, c.user.id) from Card c ";
+
+    @Query(value = CARD_DTO + "where c.user.id = :userId",
+            countQuery = "select count(c) from Card c where c.user.id = :userId")
+    Page<CardDto> findDtosByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = CARD_DTO, countQuery = "select count(c) from Card c")
+    Page<CardDto> findAllDtos(Pageable pageable);
+
+    // Keyset-пагинация по id без count(*)
+    @Query(CARD_DTO + "where c.user.id = :userId and c.id > :afterId order by c.id")
+    List<CardDto> findDtosByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query(CARD_DTO + "where c.id > :afterId order by c.id")
+    List<CardDto> findDtosAfter(@Param("afterId") Long afterId, Limit limit);
+    boolean existsByCardFingerprint(String cardFingerprint);
+
+    @Query("select c.cardFingerprint from Card c where c.cardFingerprint in :fingerprints")
+    Set<String> findExistingFingerprints(@Param("fingerprints") Collection<String> fingerprints);
     Optional<Card> findByIdAndUserId(Long id, Long userId);
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // Выгрузка всей таблицы курсором: вызывать внутри транзакции и закрывать Stream
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(CARD_DTO + "order by c.id")
+    Stream<CardDto> streamAllDtos();
+
+    @Query("select c.id from Card c where c.id in :ids and c.user.id = :userId")
+    Set<Long> findOwnedIds(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    // Атомарные изменения баланса: результат — число затронутых строк (0 или 1)
+    @Modifying(clearAutomatically = true)
+    @Query("update Card c set c.balance = c.balance + :amount, c.version = c.version + 1 " +
+            "where c.id = :id and c.status = com.example.bankcards.entity.CardStatus.ACTIVE")
+    int depositIfActive(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Card c set c.balance = c.balance - :amount, c.version = c.version + 1 " +
+            "where c.id = :id and c.user.id = :userId and c.balance >= :amount")
+    int debitIfSufficient(@Param("id") Long id, @Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Card c set c.balance = c.balance + :amount, c.version = c.version + 1 " +
+            "where c.id = :id and c.user.id = :userId")
+    int credit(@Param("id") Long id, @Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    // Пересчёт сводки: все карты пользователя блокируются до строки сводки, в том же порядке, что и в операциях
+    @Query(value = "SELECT id FROM cards WHERE user_id = :userId ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
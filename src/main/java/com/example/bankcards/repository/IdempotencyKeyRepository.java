@@ -0,0 +1,91 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Захват и освобождение ключа — отдельные автокоммиты: захват должен быть виден конкурентам до начала операции.
+// complete вызывается внутри транзакции операции и коммитится вместе с ней.
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // true — ключ наш; false — ключ уже занят другим запросом
+    public boolean tryClaim(Long userId, String key, String operation, String requestHash,
+                            LocalDateTime now, LocalDateTime expiresAt) {
+        return jdbcTemplate.update(
+                "INSERT INTO idempotency_keys " +
+                        "(user_id, idempotency_key, operation, request_hash, status, created_at, expires_at) " +
+                        "VALUES (?, ?, ?, ?, '" + IN_PROGRESS + "', ?, ?) ON CONFLICT DO NOTHING",
+                userId, key, operation, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(expiresAt)) == 1;
+    }
+
+    public Optional<StoredKey> find(Long userId, String key) {
+        List<StoredKey> rows = jdbcTemplate.query(
+                "SELECT operation, request_hash, status, response_body, created_at, expires_at " +
+                        "FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ?",
+                (rs, rowNum) -> new StoredKey(
+                        rs.getString("operation"),
+                        rs.getString("request_hash"),
+                        rs.getString("status"),
+                        rs.getString("response_body"),
+                        rs.getTimestamp("created_at").toLocalDateTime(),
+                        rs.getTimestamp("expires_at").toLocalDateTime()),
+                userId, key);
+        return rows.stream().findFirst();
+    }
+
+    public void complete(Long userId, String key, String responseBody) {
+        jdbcTemplate.update(
+                "UPDATE idempotency_keys SET status = '" + COMPLETED + "', response_body = ? " +
+                        "WHERE user_id = ? AND idempotency_key = ?",
+                responseBody, userId, key);
+    }
+
+    // Операция упала и откатилась — освобождаем ключ, чтобы клиент мог повторить
+    public void release(Long userId, String key) {
+        jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND status = '" + IN_PROGRESS + "'",
+                userId, key);
+    }
+
+    // Ключ, захваченный раньше staleBefore и так и не завершённый
+    public void releaseStale(Long userId, String key, LocalDateTime staleBefore) {
+        jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND status = '" + IN_PROGRESS + "' " +
+                        "AND created_at < ?",
+                userId, key, Timestamp.valueOf(staleBefore));
+    }
+
+    public void deleteIfExpired(Long userId, String key, LocalDateTime now) {
+        jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND expires_at < ?",
+                userId, key, Timestamp.valueOf(now));
+    }
+
+    public int deleteExpired(LocalDateTime now) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ?", Timestamp.valueOf(now));
+    }
+
+    public record StoredKey(String operation,
+                            String requestHash,
+                            String status,
+                            String responseBody,
+                            LocalDateTime createdAt,
+                            LocalDateTime expiresAt) {
+
+        public boolean isCompleted() {
+            return COMPLETED.equals(status);
+        }
+    }
+}
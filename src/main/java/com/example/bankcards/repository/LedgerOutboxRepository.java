@@ -0,0 +1,98 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Outbox журнала операций: запись идёт в транзакции перевода, перенос в transactions — фоновым писателем
+@Repository
+@RequiredArgsConstructor
+public class LedgerOutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void append(TransactionType type, BigDecimal amount, Long fromCardId, Long toCardId) {
+        jdbcTemplate.update(
+                "INSERT INTO transaction_outbox (type, amount, from_card_id, to_card_id, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                type.name(), amount, fromCardId, toCardId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    public void appendAll(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            args.add(new Object[]{e.type().name(), e.amount(), e.fromCardId(), e.toCardId(), now});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transaction_outbox (type, amount, from_card_id, to_card_id, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?)",
+                args);
+    }
+
+    // Вызывать в транзакции переноса: строки остаются заблокированными до коммита, а писатели на других узлах
+    // пропускают их и берут следующие, вместо того чтобы переносить те же записи и падать на outbox_id
+    public List<Entry> fetchBatch(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, type, amount, from_card_id, to_card_id, created_at " +
+                        "FROM transaction_outbox ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                (rs, rowNum) -> new Entry(
+                        rs.getLong("id"),
+                        TransactionType.valueOf(rs.getString("type")),
+                        rs.getBigDecimal("amount"),
+                        rs.getObject("from_card_id", Long.class),
+                        rs.getObject("to_card_id", Long.class),
+                        rs.getTimestamp("created_at").toLocalDateTime()),
+                limit);
+    }
+
+    // Повторная доставка той же записи пропускается по outbox_id.
+    // Карту могли удалить, пока запись ждала в очереди, — тогда ссылка становится NULL, а не ломает всю пачку.
+    public void writeToLedger(List<Entry> entries) {
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            args.add(new Object[]{e.type().name(), e.amount(), e.fromCardId(), e.toCardId(),
+                    Timestamp.valueOf(e.createdAt()), e.id(), e.id()});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transactions (type, amount, from_card_id, to_card_id, timestamp, outbox_id) " +
+                        "SELECT ?, ?, (SELECT id FROM cards WHERE id = ?), (SELECT id FROM cards WHERE id = ?), ?, ? " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM transactions WHERE outbox_id = ?)",
+                args);
+    }
+
+    public void delete(List<Entry> entries) {
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            args.add(new Object[]{e.id()});
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM transaction_outbox WHERE id = ?", args);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_outbox", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public record Entry(Long id,
+                        TransactionType type,
+                        BigDecimal amount,
+                        Long fromCardId,
+                        Long toCardId,
+                        LocalDateTime createdAt) {
+
+        public static Entry transfer(BigDecimal amount, Long fromCardId, Long toCardId) {
+            return new Entry(null, TransactionType.TRANSFER, amount, fromCardId, toCardId, null);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class RefreshTokenRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(String tokenHash, Long userId, String familyId, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        jdbcTemplate.update(
+                "INSERT INTO refresh_tokens (token_hash, user_id, family_id, revoked, created_at, expires_at) " +
+                        "VALUES (?, ?, ?, FALSE, ?, ?)",
+                tokenHash, userId, familyId, Timestamp.valueOf(createdAt), Timestamp.valueOf(expiresAt));
+    }
+
+    public Optional<StoredRefreshToken> findByHash(String tokenHash) {
+        List<StoredRefreshToken> rows = jdbcTemplate.query(
+                "SELECT user_id, family_id, revoked, expires_at FROM refresh_tokens WHERE token_hash = ?",
+                (rs, rowNum) -> new StoredRefreshToken(
+                        rs.getLong("user_id"),
+                        rs.getString("family_id"),
+                        rs.getBoolean("revoked"),
+                        rs.getTimestamp("expires_at").toLocalDateTime()),
+                tokenHash);
+        return rows.stream().findFirst();
+    }
+
+    // Условный UPDATE: из двух одновременных ротаций одного токена успешна только одна
+    public boolean consume(String tokenHash) {
+        return jdbcTemplate.update(
+                "UPDATE refresh_tokens SET revoked = TRUE WHERE token_hash = ? AND revoked = FALSE",
+                tokenHash) == 1;
+    }
+
+    public int revokeFamily(String familyId) {
+        return jdbcTemplate.update("UPDATE refresh_tokens SET revoked = TRUE WHERE family_id = ?", familyId);
+    }
+
+    public int revokeAllForUser(Long userId) {
+        return jdbcTemplate.update("UPDATE refresh_tokens SET revoked = TRUE WHERE user_id = ?", userId);
+    }
+
+    public int deleteExpired(LocalDateTime now) {
+        return jdbcTemplate.update("DELETE FROM refresh_tokens WHERE expires_at <= ?", Timestamp.valueOf(now));
+    }
+
+    public record StoredRefreshToken(Long userId, String familyId, boolean revoked, LocalDateTime expiresAt) {
+    }
+}
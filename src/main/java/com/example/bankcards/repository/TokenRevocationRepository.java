@@ -0,0 +1,61 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class TokenRevocationRepository {
+
+    private static final RowMapper<Revocation> REVOCATION_MAPPER = (rs, rowNum) -> new Revocation(
+            rs.getString("token_id"),
+            rs.getString("username"),
+            rs.getTimestamp("revoked_at").toLocalDateTime(),
+            rs.getTimestamp("expires_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void revokeToken(String tokenId, LocalDateTime revokedAt, LocalDateTime expiresAt) {
+        jdbcTemplate.update(
+                "INSERT INTO token_revocations (token_id, revoked_at, expires_at) VALUES (?, ?, ?)",
+                tokenId, Timestamp.valueOf(revokedAt), Timestamp.valueOf(expiresAt));
+    }
+
+    public void revokeUser(String username, LocalDateTime revokedAt, LocalDateTime expiresAt) {
+        jdbcTemplate.update(
+                "INSERT INTO token_revocations (username, revoked_at, expires_at) VALUES (?, ?, ?)",
+                username, Timestamp.valueOf(revokedAt), Timestamp.valueOf(expiresAt));
+    }
+
+    // Все действующие записи — первичная загрузка
+    public List<Revocation> findActive(LocalDateTime now) {
+        return jdbcTemplate.query(
+                "SELECT token_id, username, revoked_at, expires_at FROM token_revocations WHERE expires_at > ?",
+                REVOCATION_MAPPER, Timestamp.valueOf(now));
+    }
+
+    // Догрузка записей других узлов. По id нельзя: id выдаются при INSERT, а видны строки становятся при коммите
+    // и не по порядку, поэтому окно по revoked_at вызывающий берёт с перекрытием.
+    public List<Revocation> findActiveRevokedSince(LocalDateTime since, LocalDateTime now) {
+        return jdbcTemplate.query(
+                "SELECT token_id, username, revoked_at, expires_at FROM token_revocations " +
+                        "WHERE revoked_at >= ? AND expires_at > ?",
+                REVOCATION_MAPPER, Timestamp.valueOf(since), Timestamp.valueOf(now));
+    }
+
+    public int deleteExpired(LocalDateTime now) {
+        return jdbcTemplate.update("DELETE FROM token_revocations WHERE expires_at <= ?", Timestamp.valueOf(now));
+    }
+
+    public record Revocation(String tokenId,
+                             String username,
+                             LocalDateTime revokedAt,
+                             LocalDateTime expiresAt) {
+    }
+}
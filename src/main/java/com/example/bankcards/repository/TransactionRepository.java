@@ -1,7 +1,20 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.TransactionDto;
 import com.example.bankcards.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+import java.util.stream.Stream;
+
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.bankcards.dto.TransactionDto(" +
+            "t.id, t.type, t.amount, t.fromCard.id, t.toCard.id, t.timestamp) " +
+            "from Transaction t order by t.id")
+    Stream<TransactionDto> streamAllDtos();
 }
@@ -0,0 +1,18 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.dto.TransactionFilter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransactionRepositoryCustom {
+
+    // Одна сторона истории карты (исходящие или входящие), новые сначала, строго после позиции (beforeTimestamp, beforeId)
+    List<TransactionDto> findCardHistorySlice(Long cardId,
+                                              boolean outgoing,
+                                              TransactionFilter filter,
+                                              LocalDateTime beforeTimestamp,
+                                              Long beforeId,
+                                              int limit);
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.dto.TransactionFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TransactionDto> findCardHistorySlice(Long cardId,
+                                                     boolean outgoing,
+                                                     TransactionFilter filter,
+                                                     LocalDateTime beforeTimestamp,
+                                                     Long beforeId,
+                                                     int limit) {
+        // Запрос собирается только из заданных условий, чтобы планировщик шёл по индексу (card_id, timestamp, id).
+        // t.fromCard.id / t.toCard.id Hibernate 6 берёт прямо из FK-столбца: без join, null у пополнений сохраняется.
+        StringBuilder jpql = new StringBuilder(
+                "select new com.example.bankcards.dto.TransactionDto(" +
+                        "t.id, t.type, t.amount, t.fromCard.id, t.toCard.id, t.timestamp) " +
+                        "from Transaction t where ");
+        jpql.append(outgoing ? "t.fromCard.id = :cardId" : "t.toCard.id = :cardId");
+        if (filter.type() != null) {
+            jpql.append(" and t.type = :type");
+        }
+        if (filter.from() != null) {
+            jpql.append(" and t.timestamp >= :from");
+        }
+        if (filter.to() != null) {
+            jpql.append(" and t.timestamp < :to");
+        }
+        if (beforeTimestamp != null) {
+            jpql.append(" and (t.timestamp < :beforeTimestamp or (t.timestamp = :beforeTimestamp and t.id < :beforeId))");
+        }
+        jpql.append(" order by t.timestamp desc, t.id desc");
+
+        TypedQuery<TransactionDto> query = entityManager.createQuery(jpql.toString(), TransactionDto.class);
+        query.setParameter("cardId", cardId);
+        if (filter.type() != null) {
+            query.setParameter("type", filter.type());
+        }
+        if (filter.from() != null) {
+            query.setParameter("from", filter.from());
+        }
+        if (filter.to() != null) {
+            query.setParameter("to", filter.to());
+        }
+        if (beforeTimestamp != null) {
+            query.setParameter("beforeTimestamp", beforeTimestamp);
+            query.setParameter("beforeId", beforeId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
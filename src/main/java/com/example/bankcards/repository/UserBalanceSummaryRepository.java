@@ -0,0 +1,57 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.UserBalanceSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Все изменения — относительные UPDATE, чтобы параллельные операции одного пользователя не теряли друг друга
+public interface UserBalanceSummaryRepository extends JpaRepository<UserBalanceSummary, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO user_balance_summaries (user_id, total_balance, active_cards) " +
+            "VALUES (:userId, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("update UserBalanceSummary s set s.totalBalance = s.totalBalance + :balanceDelta, " +
+            "s.activeCards = s.activeCards + :activeDelta, s.lastActivity = :now where s.userId = :userId")
+    int adjust(@Param("userId") Long userId,
+               @Param("balanceDelta") BigDecimal balanceDelta,
+               @Param("activeDelta") int activeDelta,
+               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update UserBalanceSummary s set s.totalBalance = s.totalBalance + :balanceDelta, s.lastActivity = :now " +
+            "where s.userId = (select c.user.id from Card c where c.id = :cardId)")
+    int adjustByCard(@Param("cardId") Long cardId,
+                     @Param("balanceDelta") BigDecimal balanceDelta,
+                     @Param("now") LocalDateTime now);
+
+    // Сверка: тройки (userId, сумма балансов, активные карты) по таблице cards для страницы пользователей
+    @Query("select c.user.id, sum(c.balance), " +
+            "sum(case when c.status = com.example.bankcards.entity.CardStatus.ACTIVE then 1 else 0 end) " +
+            "from Card c where c.user.id in :userIds group by c.user.id")
+    List<Object[]> aggregateCardsByUser(@Param("userIds") Collection<Long> userIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from UserBalanceSummary s where s.userId = :userId")
+    Optional<UserBalanceSummary> findByIdForUpdate(@Param("userId") Long userId);
+
+    // Только под блокировками карт и строки сводки, иначе SUM может потерять параллельный относительный UPDATE
+    @Modifying
+    @Query(value = "UPDATE user_balance_summaries s SET " +
+            "total_balance = (SELECT COALESCE(SUM(c.balance), 0) FROM cards c WHERE c.user_id = s.user_id), " +
+            "active_cards = (SELECT COUNT(*) FROM cards c WHERE c.user_id = s.user_id AND c.status = 'ACTIVE') " +
+            "WHERE s.user_id = :userId", nativeQuery = true)
+    int recompute(@Param("userId") Long userId);
+}
@@ -1,30 +1,63 @@
 package com.example.bankcards.security;
+import com.example.bankcards.config.LogSampler;
 import com.example.bankcards.service.UserService;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserService userService;
+    private final JwtTokenCache tokenCache;
+    private final TokenRevocationService revocations;
+    private final LogSampler debugSampler;
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserService userService) {
+    // Парсинг и проверка подписи — только промахи кэша; попадания видны в bank.jwt.cache.*
+    private final Timer validTokens;
+    private final Timer invalidTokens;
+
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   UserService userService,
+                                   JwtTokenCache tokenCache,
+                                   TokenRevocationService revocations,
+                                   MeterRegistry meterRegistry,
+                                   LogSampler debugSampler) {
         this.jwtService = jwtService;
         this.userService = userService;
+        this.tokenCache = tokenCache;
+        this.revocations = revocations;
+        this.debugSampler = debugSampler;
+        this.validTokens = validationTimer(meterRegistry, "valid");
+        this.invalidTokens = validationTimer(meterRegistry, "invalid");
+    }
+
+    private static Timer validationTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("bank.jwt.validation")
+                .description("JWT parse and signature verification time")
+                .tag("outcome", outcome)
+                .register(registry);
     }
 
     @Override
@@ -33,16 +66,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
-        System.out.println("=== JWT FILTER ===");
-        System.out.println("Request: " + request.getRequestURI());
-
         if (request.getServletPath().startsWith("/auth/")) {
             filterChain.doFilter(request, response);
             return;
         }
 
+        // Сам заголовок в лог не пишем: это действующий токен
         final String authHeader = request.getHeader("Authorization");
-        System.out.println("Auth header: " + authHeader);
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -50,21 +80,70 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String jwt = authHeader.substring(7);
-        final String username = jwtService.extractUsername(jwt);
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userService.loadUserByUsername(username);
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        // Повторный токен: ни парсинга, ни запроса в БД
+        JwtTokenCache.CachedAuthentication cached = tokenCache.get(jwt);
+        if (cached != null) {
+            // Отзыв мог прийти с другого узла уже после того, как токен попал в кэш
+            if (revocations.isRevoked(cached.principal().getUsername(), cached.tokenId(), cached.issuedAtMillis())) {
+                log.debug("Revoked token of {} dropped from cache", cached.principal().getUsername());
+                tokenCache.invalidate(jwt);
+            } else {
+                if (log.isDebugEnabled() && debugSampler.sample()) {
+                    log.debug("Cached token of {} for {} {}",
+                            cached.principal().getUsername(), request.getMethod(), request.getRequestURI());
+                }
+                authenticate(request, cached.principal(), cached.authorities());
             }
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        final ValidatedToken token;
+        long validationStart = System.nanoTime();
+        try {
+            token = jwtService.validate(jwt);
+            validTokens.record(System.nanoTime() - validationStart, TimeUnit.NANOSECONDS);
+        } catch (JwtException | IllegalArgumentException e) {
+            invalidTokens.record(System.nanoTime() - validationStart, TimeUnit.NANOSECONDS);
+            if (log.isDebugEnabled() && debugSampler.sample()) {
+                log.debug("Rejected token for {} {}: {}", request.getMethod(), request.getRequestURI(), e.toString());
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (token.subject() != null && !token.isExpired() && !revocations.isRevoked(token)) {
+            // Поколение — до загрузки: смена роли, закоммиченная после чтения, не оставит в кэше старые права
+            long generation = tokenCache.generation(token.subject());
+            final UserDetails userDetails;
+            try {
+                userDetails = this.userService.loadUserByUsername(token.subject());
+            } catch (UsernameNotFoundException e) {
+                log.debug("Token subject {} no longer exists", token.subject());
+                filterChain.doFilter(request, response);
+                return;
+            }
+            tokenCache.put(jwt, userDetails, token, generation);
+            authenticate(request, userDetails, userDetails.getAuthorities());
         }
         filterChain.doFilter(request, response);
     }
+
+    private void authenticate(HttpServletRequest request,
+                              UserDetails userDetails,
+                              Collection<? extends GrantedAuthority> authorities) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                authorities
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
 }
\ No newline at end of file
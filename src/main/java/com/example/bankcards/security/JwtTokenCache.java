@@ -0,0 +1,227 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Кэш проверенных JWT: запись живёт не дольше exp самого токена.
+// Рядом с картой — очередь по exp: вытеснение при переполнении берёт голову очереди за O(log n), без обхода всех записей.
+// Токены проиндексированы по пользователю, а поколение пользователя отсекает запись, загруженную до invalidateUser.
+@Component
+public class JwtTokenCache implements MeterBinder {
+
+    private static final Comparator<Expiry> EXPIRY_ORDER =
+            Comparator.comparingLong(Expiry::expiresAtMillis).thenComparingLong(Expiry::seq);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Expiry> expiryQueue = new ConcurrentSkipListSet<>(EXPIRY_ORDER);
+    private final Map<String, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public JwtTokenCache(@Value("${jwt.cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public CachedAuthentication get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.authentication().isExpired(System.currentTimeMillis())) {
+            remove(token, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.authentication();
+    }
+
+    // Снимается до загрузки UserDetails и передаётся в put: так видно, что между ними прошёл invalidateUser
+    public long generation(String username) {
+        return generations.getOrDefault(username, 0L);
+    }
+
+    public void put(String token, UserDetails userDetails, ValidatedToken validated, long generation) {
+        long issuedAt = validated.issuedAt() == null ? 0 : validated.issuedAt().getTime();
+        put(token, userDetails, validated.expiration(), validated.tokenId(), issuedAt, generation);
+    }
+
+    public void put(String token, UserDetails userDetails, Date expiration) {
+        put(token, userDetails, expiration, null, 0, generation(userDetails.getUsername()));
+    }
+
+    private void put(String token, UserDetails userDetails, Date expiration, String tokenId, long issuedAtMillis,
+                     long generation) {
+        String username = userDetails.getUsername();
+        if (maxSize <= 0 || expiration == null || generation(username) != generation) {
+            return;
+        }
+        evictExpired(System.currentTimeMillis());
+        while (entries.size() >= maxSize) {
+            if (!evictEarliestExpiring()) {
+                break;
+            }
+        }
+        Expiry expiry = new Expiry(expiration.getTime(), sequence.incrementAndGet(), token);
+        Entry entry = new Entry(new CachedAuthentication(
+                userDetails, userDetails.getAuthorities(), expiration.getTime(), tokenId, issuedAtMillis), expiry);
+        expiryQueue.add(expiry);
+        Entry previous = entries.put(token, entry);
+        if (previous != null) {
+            expiryQueue.remove(previous.expiry());
+        }
+        tokensByUser.compute(username, (u, tokens) -> {
+            Set<String> indexed = tokens == null ? ConcurrentHashMap.newKeySet() : tokens;
+            indexed.add(token);
+            return indexed;
+        });
+        // invalidateUser мог пройти между проверкой выше и вставкой: тогда запись устарела, снимаем её сами
+        if (generation(username) != generation) {
+            remove(token, entry);
+        }
+    }
+
+    public void invalidate(String token) {
+        Entry entry = entries.get(token);
+        if (entry != null) {
+            remove(token, entry);
+        }
+    }
+
+    // Вызывается после коммита удаления пользователя или смены роли.
+    // Поколение растёт до снятия записей, поэтому put с данными до коммита либо попадёт под обход, либо отбросит себя.
+    public void invalidateUser(String username) {
+        generations.merge(username, 1L, Long::sum);
+        Set<String> tokens = tokensByUser.get(username);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Entry entry = entries.get(token);
+            if (entry != null) {
+                remove(token, entry);
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        expiryQueue.clear();
+        tokensByUser.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bank.jwt.cache.size", this, JwtTokenCache::size).register(registry);
+        FunctionCounter.builder("bank.jwt.cache.requests", this, JwtTokenCache::getHitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bank.jwt.cache.requests", this, JwtTokenCache::getMissCount)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("bank.jwt.cache.evictions", this, JwtTokenCache::getEvictionCount)
+                .register(registry);
+    }
+
+    // Истёкшие записи лежат в голове очереди: каждая снимается один раз, в сумме O(log n) на запись
+    private void evictExpired(long now) {
+        for (Expiry head : expiryQueue) {
+            if (now < head.expiresAtMillis()) {
+                return;
+            }
+            if (expiryQueue.remove(head)) {
+                evictEntry(head);
+            }
+        }
+    }
+
+    private boolean evictEarliestExpiring() {
+        Expiry head = expiryQueue.pollFirst();
+        if (head == null) {
+            return false;
+        }
+        evictEntry(head);
+        return true;
+    }
+
+    private void evictEntry(Expiry expiry) {
+        Entry entry = entries.get(expiry.token());
+        if (entry != null && entry.expiry().equals(expiry) && entries.remove(expiry.token(), entry)) {
+            unindex(expiry.token(), entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String token, Entry entry) {
+        if (entries.remove(token, entry)) {
+            expiryQueue.remove(entry.expiry());
+            unindex(token, entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Под compute по пользователю: параллельный put того же токена успеет вернуть его в индекс
+    private void unindex(String token, Entry entry) {
+        tokensByUser.computeIfPresent(entry.authentication().principal().getUsername(), (username, tokens) -> {
+            if (!entries.containsKey(token)) {
+                tokens.remove(token);
+            }
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    private record Entry(CachedAuthentication authentication, Expiry expiry) {
+    }
+
+    // seq различает записи с одинаковым exp, иначе множество склеило бы их
+    private record Expiry(long expiresAtMillis, long seq, String token) {
+    }
+
+    public record CachedAuthentication(UserDetails principal,
+                                       Collection<? extends GrantedAuthority> authorities,
+                                       long expiresAtMillis,
+                                       String tokenId,
+                                       long issuedAtMillis) {
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+}
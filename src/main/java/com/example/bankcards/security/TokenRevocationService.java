@@ -0,0 +1,161 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.TokenRevocationRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Список отзыва access-токенов в памяти: проверка в фильтре без обращения к БД.
+// По jti — Bloom-фильтр перед точным множеством (почти все токены отсекаются фильтром за пару чтений),
+// по пользователю — время отзыва: недействительны все его токены с iat не позже этого момента.
+// Источник истины — token_revocations; при старте и периодически структура догружается оттуда.
+// Свои отзывы попадают в память только после коммита записи в БД.
+@Component
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final TokenRevocationRepository repository;
+    private final long accessTokenTtlMillis;
+    private final int expectedEntries;
+    private final Duration syncOverlap;
+
+    private final Map<String, Long> revokedTokenIds = new ConcurrentHashMap<>(); // jti -> exp, мс
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();    // username -> revokedAt, мс
+    private volatile LocalDateTime syncedUpTo; // null — первичная загрузка ещё не прошла
+    private volatile BloomFilter bloomFilter;
+    private final Object bloomLock = new Object(); // запись в фильтр и его замена; проверки идут без блокировки
+
+    public TokenRevocationService(TokenRevocationRepository repository,
+                                  @Value("${jwt.expiration}") long accessTokenTtlMillis,
+                                  @Value("${jwt.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${jwt.revocation.sync-overlap-ms:60000}") long syncOverlapMillis) {
+        this.repository = repository;
+        this.accessTokenTtlMillis = accessTokenTtlMillis;
+        this.expectedEntries = expectedEntries;
+        this.syncOverlap = Duration.ofMillis(syncOverlapMillis);
+        this.bloomFilter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+    }
+
+    @PostConstruct
+    public void load() {
+        sync();
+    }
+
+    public boolean isRevoked(String username, String tokenId, long issuedAtMillis) {
+        Long userRevokedAt = revokedUsers.get(username);
+        if (userRevokedAt != null && issuedAtMillis <= userRevokedAt) {
+            return true;
+        }
+        return tokenId != null
+                && bloomFilter.mightContain(tokenId)
+                && revokedTokenIds.containsKey(tokenId);
+    }
+
+    public boolean isRevoked(ValidatedToken token) {
+        long issuedAt = token.issuedAt() == null ? 0 : token.issuedAt().getTime();
+        return isRevoked(token.subject(), token.tokenId(), issuedAt);
+    }
+
+    public void revokeToken(String tokenId, long expiresAtMillis) {
+        LocalDateTime now = LocalDateTime.now();
+        repository.revokeToken(tokenId, now, toLocalDateTime(expiresAtMillis));
+        afterCommit(() -> addToken(tokenId, expiresAtMillis));
+    }
+
+    // Все выданные пользователю access-токены живут не дольше jwt.expiration — столько и храним запись
+    public void revokeUser(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        repository.revokeUser(username, now, now.plus(Duration.ofMillis(accessTokenTtlMillis)));
+        long revokedAt = toMillis(now);
+        afterCommit(() -> revokedUsers.merge(username, revokedAt, Math::max));
+    }
+
+    // Догружает записи, сделанные другими узлами, и выбрасывает истёкшие.
+    // revoked_at ставится до INSERT, а строка видна только после коммита, поэтому окно каждый раз начинается
+    // на sync-overlap раньше прошлой синхронизации: перекрытие покрывает длину транзакции и расхождение часов узлов.
+    // Повторно прочитанные записи применяются идемпотентно.
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:30000}",
+            initialDelayString = "${jwt.revocation.sync-interval-ms:30000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = syncedUpTo;
+        List<TokenRevocationRepository.Revocation> revocations = since == null
+                ? repository.findActive(now)
+                : repository.findActiveRevokedSince(since.minus(syncOverlap), now);
+        for (TokenRevocationRepository.Revocation r : revocations) {
+            if (r.tokenId() != null) {
+                addToken(r.tokenId(), toMillis(r.expiresAt()));
+            }
+            if (r.username() != null) {
+                revokedUsers.merge(r.username(), toMillis(r.revokedAt()), Math::max);
+            }
+        }
+        syncedUpTo = now;
+        pruneExpired(toMillis(now));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-interval-ms:3600000}")
+    public void purgeExpiredRows() {
+        repository.deleteExpired(LocalDateTime.now());
+    }
+
+    public int size() {
+        return revokedTokenIds.size() + revokedUsers.size();
+    }
+
+    private void addToken(String tokenId, long expiresAtMillis) {
+        synchronized (bloomLock) {
+            revokedTokenIds.put(tokenId, expiresAtMillis);
+            bloomFilter.add(tokenId);
+        }
+    }
+
+    // Bloom-фильтр не умеет удалять — если что-то истекло, строим новый по оставшимся jti.
+    // Пока новый строится, проверки идут по старому: он шире, поэтому отозванное не пропустит.
+    // Перестройка и замена — под той же блокировкой, что и addToken: новый jti не попадёт в уже заменённый фильтр.
+    private void pruneExpired(long nowMillis) {
+        boolean removed = revokedTokenIds.values().removeIf(exp -> exp <= nowMillis);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt + accessTokenTtlMillis <= nowMillis);
+        if (removed) {
+            synchronized (bloomLock) {
+                BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revokedTokenIds.size()), FALSE_POSITIVE_RATE);
+                revokedTokenIds.keySet().forEach(rebuilt::add);
+                bloomFilter = rebuilt;
+            }
+        }
+    }
+
+    // Отзыв, откатившийся вместе с транзакцией, не должен остаться в памяти
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
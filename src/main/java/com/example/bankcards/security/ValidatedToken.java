@@ -0,0 +1,39 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+public record ValidatedToken(String subject,
+                             String tokenId,
+                             Date expiration,
+                             Date issuedAt,
+                             Map<String, Object> claims) {
+
+    static ValidatedToken from(Claims claims) {
+        Map<String, Object> custom = new HashMap<>(claims);
+        custom.remove(Claims.SUBJECT);
+        custom.remove(Claims.EXPIRATION);
+        custom.remove(Claims.ISSUED_AT);
+        custom.remove(Claims.ID);
+        return new ValidatedToken(
+                claims.getSubject(),
+                claims.getId(),
+                claims.getExpiration(),
+                claims.getIssuedAt(),
+                Collections.unmodifiableMap(custom)
+        );
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T claim(String name) {
+        return (T) claims.get(name);
+    }
+}
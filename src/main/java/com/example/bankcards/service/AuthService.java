@@ -6,65 +6,62 @@ import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.JwtTokenCache;
+import com.example.bankcards.security.PasswordHashingRejectedException;
+import com.example.bankcards.security.TokenRevocationService;
+import com.example.bankcards.security.ValidatedToken;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 
-import java.util.Optional;
-
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final UserService userService;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService revocations;
+    private final JwtTokenCache tokenCache;
 
-    @Transactional
     public JwtResponse register(AuthRequest request) {
         try {
-            System.out.println("=== REGISTRATION DEBUG ===");
-            System.out.println("Checking username: " + request.getUsername());
-
-            // Детальная проверка существования пользователя
-            Optional<User> existingUser = userRepository.findByUsername(request.getUsername());
-            System.out.println("User exists in DB: " + existingUser.isPresent());
-
-            if (existingUser.isPresent()) {
-                System.out.println("Found existing user: " + existingUser.get().getUsername());
+            log.debug("Registering user {}", request.getUsername());
+
+            // Занятое имя определяет уникальное ограничение, отдельный SELECT не нужен
+            User savedUser;
+            try {
+                savedUser = userService.createUser(request.getUsername(), request.getPassword(),
+                        request.getUsername() + "@example.com", Role.ROLE_USER);
+            } catch (IllegalArgumentException e) {
+                log.debug("Registration of {} rejected: {}", request.getUsername(), e.getMessage());
                 throw new ResponseStatusException(
                         HttpStatus.CONFLICT,
                         "Username '" + request.getUsername() + "' already exists"
                 );
             }
-
-            System.out.println("Creating new user...");
-
-            User user = new User();
-            user.setUsername(request.getUsername());
-            user.setPassword(passwordEncoder.encode(request.getPassword()));
-            user.setEmail(request.getUsername() + "@example.com");
-            user.setRole(Role.ROLE_USER);
-
-            User savedUser = userRepository.save(user);
-            System.out.println("User successfully created with ID: " + savedUser.getId());
+            log.info("User {} registered with id {}", savedUser.getUsername(), savedUser.getId());
 
             // Генерируем реальный JWT токен
             String token = jwtService.generateToken(savedUser);
+            String refreshToken = refreshTokenService.issue(savedUser.getId());
 
-            return new JwtResponse(token, "Bearer", savedUser.getUsername(), savedUser.getRole().name());
+            return new JwtResponse(token, "Bearer", savedUser.getUsername(), savedUser.getRole().name(), refreshToken);
 
-        } catch (ResponseStatusException e) {
+        } catch (ResponseStatusException | PasswordHashingRejectedException e) {
             throw e; // Пробрасываем уже обработанные ошибки
         } catch (Exception e) {
-            System.err.println("Registration failed with error: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Registration of {} failed", request.getUsername(), e);
             throw new ResponseStatusException(
                     HttpStatus.INTERNAL_SERVER_ERROR,
                     "Registration failed: " + e.getMessage()
@@ -74,40 +71,33 @@ public class AuthService {
 
     public JwtResponse authenticate(AuthRequest request) {
         try {
-            System.out.println("=== LOGIN DEBUG ===");
-            System.out.println("Attempting login for: " + request.getUsername());
-
-            // Сначала проверяем существование пользователя
-            User user = userRepository.findByUsername(request.getUsername())
-                    .orElseThrow(() -> {
-                        System.out.println("User not found: " + request.getUsername());
-                        return new ResponseStatusException(
-                                HttpStatus.UNAUTHORIZED,
-                                "Invalid username or password"
-                        );
-                    });
-
-            System.out.println("User found, attempting authentication...");
-
-            // Аутентификация
-            authenticationManager.authenticate(
+            log.debug("Login attempt for {}", request.getUsername());
+
+            // Пользователя загружает AuthenticationManager (один SELECT), его же берём для токена
+            Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             request.getUsername(),
                             request.getPassword()
                     )
             );
-
-            System.out.println("Authentication successful, generating token...");
+            User user = (User) authentication.getPrincipal();
 
             String token = jwtService.generateToken(user);
+            String refreshToken = refreshTokenService.issue(user.getId());
 
-            return new JwtResponse(token, "Bearer", user.getUsername(), user.getRole().name());
+            return new JwtResponse(token, "Bearer", user.getUsername(), user.getRole().name(), refreshToken);
 
-        } catch (ResponseStatusException e) {
+        } catch (AuthenticationException e) {
+            // Под перебором паролей это частое событие — только DEBUG
+            log.debug("Login failed for {}", request.getUsername());
+            throw new ResponseStatusException(
+                    HttpStatus.UNAUTHORIZED,
+                    "Invalid username or password"
+            );
+        } catch (ResponseStatusException | PasswordHashingRejectedException e) {
             throw e;
         } catch (Exception e) {
-            System.err.println("Authentication failed: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Authentication of {} failed", request.getUsername(), e);
             throw new ResponseStatusException(
                     HttpStatus.UNAUTHORIZED,
                     "Authentication failed: " + e.getMessage()
@@ -115,6 +105,36 @@ public class AuthService {
         }
     }
 
+    // Ротация: старый refresh-токен погашается, выдаётся новая пара
+    public JwtResponse refresh(String refreshToken) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+            User user = userRepository.findById(rotation.userId())
+                    .orElseThrow(() -> new IllegalArgumentException("User not found"));
+            String token = jwtService.generateToken(user);
+            return new JwtResponse(token, "Bearer", user.getUsername(), user.getRole().name(), rotation.refreshToken());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+    }
+
+    // Отзывает семью refresh-токена и, если передан, текущий access-токен
+    public void logout(String refreshToken, String accessToken) {
+        refreshTokenService.revoke(refreshToken);
+        if (accessToken == null) {
+            return;
+        }
+        try {
+            ValidatedToken validated = jwtService.validate(accessToken);
+            if (validated.tokenId() != null) {
+                revocations.revokeToken(validated.tokenId(), validated.expiration().getTime());
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            // истёкший или чужой токен отзывать не нужно
+        }
+        tokenCache.invalidate(accessToken);
+    }
+
     // Вспомогательный метод для проверки
     public boolean userExists(String username) {
         return userRepository.findByUsername(username).isPresent();
@@ -0,0 +1,169 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BalanceSummaryDto;
+import com.example.bankcards.entity.UserBalanceSummary;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserBalanceSummaryRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Сводка по пользователю меняется только относительными UPDATE внутри транзакции вызывающего
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceSummaryService implements MeterBinder {
+
+    private static final int RECONCILE_PAGE_SIZE = 500;
+
+    private final UserBalanceSummaryRepository summaryRepository;
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong mismatches = new AtomicLong();
+
+    @Transactional(readOnly = true)
+    public BalanceSummaryDto getSummary(Long userId) {
+        return summaryRepository.findById(userId)
+                .map(s -> new BalanceSummaryDto(s.getTotalBalance(), s.getActiveCards(), s.getLastActivity()))
+                .orElseGet(() -> new BalanceSummaryDto(BigDecimal.ZERO, 0, null));
+    }
+
+    @Transactional
+    public void onCardCreated(Long userId, BigDecimal balance, boolean active) {
+        summaryRepository.insertIfAbsent(userId);
+        summaryRepository.adjust(userId, balance, active ? 1 : 0, LocalDateTime.now());
+    }
+
+    // Массовый выпуск: по одному UPDATE на пользователя, а не на карту.
+    // Ключи — в порядке id, чтобы параллельные импорты блокировали строки сводки в одном порядке.
+    @Transactional
+    public void onCardsCreated(SortedMap<Long, Integer> activeCardsByUser) {
+        LocalDateTime now = LocalDateTime.now();
+        activeCardsByUser.forEach((userId, count) -> {
+            summaryRepository.insertIfAbsent(userId);
+            summaryRepository.adjust(userId, BigDecimal.ZERO, count, now);
+        });
+    }
+
+    @Transactional
+    public void onCardDeleted(Long userId, BigDecimal balance, boolean wasActive) {
+        summaryRepository.adjust(userId, balance.negate(), wasActive ? -1 : 0, LocalDateTime.now());
+    }
+
+    @Transactional
+    public void onStatusChanged(Long userId, boolean wasActive, boolean active) {
+        if (wasActive != active) {
+            summaryRepository.adjust(userId, BigDecimal.ZERO, active ? 1 : -1, LocalDateTime.now());
+        }
+    }
+
+    // Пополнение: владельца определяем подзапросом, чтобы не читать карту ради user_id
+    @Transactional
+    public void onDeposit(Long cardId, BigDecimal amount) {
+        summaryRepository.adjustByCard(cardId, amount, LocalDateTime.now());
+    }
+
+    // Переводы идут только между своими картами — сумма не меняется, обновляем время активности
+    @Transactional
+    public void onTransfer(Long userId) {
+        summaryRepository.adjust(userId, BigDecimal.ZERO, 0, LocalDateTime.now());
+    }
+
+    // Сверка с таблицей cards страницами по пользователям. Первое сравнение идёт без блокировок и может поймать
+    // операцию на полпути между картой и сводкой, поэтому подозрительный пользователь перепроверяется под блокировками.
+    @Scheduled(fixedDelayString = "${app.summary.reconcile-interval-ms:3600000}",
+            initialDelayString = "${app.summary.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        Long afterId = 0L;
+        List<Long> userIds;
+        do {
+            userIds = userRepository.findIdsAfter(afterId, Limit.of(RECONCILE_PAGE_SIZE));
+            List<Long> page = userIds;
+            List<Long> suspects = transactionTemplate.execute(status -> findSuspects(page));
+            for (Long userId : suspects) {
+                transactionTemplate.executeWithoutResult(status -> repairIfMismatched(userId));
+            }
+            if (!userIds.isEmpty()) {
+                afterId = userIds.get(userIds.size() - 1);
+            }
+        } while (userIds.size() == RECONCILE_PAGE_SIZE);
+    }
+
+    private List<Long> findSuspects(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserBalanceSummary> summaries = new HashMap<>();
+        summaryRepository.findAllById(userIds).forEach(s -> summaries.put(s.getUserId(), s));
+        Map<Long, Object[]> actual = new HashMap<>();
+        summaryRepository.aggregateCardsByUser(userIds).forEach(row -> actual.put((Long) row[0], row));
+
+        List<Long> suspects = new ArrayList<>();
+        for (Long userId : userIds) {
+            UserBalanceSummary summary = summaries.get(userId);
+            Object[] row = actual.get(userId);
+            if (summary == null ? row != null : !matches(summary, row)) {
+                suspects.add(userId);
+            }
+        }
+        return suspects;
+    }
+
+    // Карты, затем строка сводки — тот же порядок блокировок, что и у операций с картами
+    private void repairIfMismatched(Long userId) {
+        cardRepository.lockIdsByUserId(userId);
+        summaryRepository.insertIfAbsent(userId);
+        UserBalanceSummary summary = summaryRepository.findByIdForUpdate(userId).orElseThrow();
+        List<Object[]> rows = summaryRepository.aggregateCardsByUser(List.of(userId));
+        Object[] row = rows.isEmpty() ? null : rows.get(0);
+        if (matches(summary, row)) {
+            return;
+        }
+        mismatches.incrementAndGet();
+        log.warn("Balance summary mismatch for user {}: stored ({}, {}), actual ({}, {})",
+                userId, summary.getTotalBalance(), summary.getActiveCards(), balanceOf(row), activeOf(row));
+        summaryRepository.recompute(userId);
+    }
+
+    private static boolean matches(UserBalanceSummary summary, Object[] row) {
+        return summary.getTotalBalance().compareTo(balanceOf(row)) == 0 && summary.getActiveCards() == activeOf(row);
+    }
+
+    private static BigDecimal balanceOf(Object[] row) {
+        return row == null ? BigDecimal.ZERO : (BigDecimal) row[1];
+    }
+
+    private static int activeOf(Object[] row) {
+        return row == null ? 0 : ((Number) row[2]).intValue();
+    }
+
+    public long getMismatchCount() {
+        return mismatches.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("bank.summary.mismatches", mismatches, AtomicLong::get)
+                .description("Balance summaries corrected by reconciliation")
+                .register(registry);
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardError;
+import com.example.bankcards.dto.BulkCardSummary;
+import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.repository.CardBatchRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// Массовый выпуск карт. Строки обрабатываются пачками: на пачку один запрос владельцев, один запрос отпечатков
+// и один JDBC batch; шифрование и HMAC считаются параллельно по ядрам. Ответ — NDJSON: отклонённые строки
+// уходят клиенту после каждой пачки, последней строкой — итог. Пачки независимы: ошибка в одной не откатывает другие.
+@Slf4j
+@Service
+public class BulkCardService {
+
+    public static final String CSV_HEADER = "cardNumber,cardHolder,expirationDate,userId";
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final CardBatchRepository cardBatchRepository;
+    private final EncryptionService encryptionService;
+    private final CardFingerprintService fingerprintService;
+    private final BalanceSummaryService balanceSummaryService;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public BulkCardService(UserRepository userRepository,
+                           CardRepository cardRepository,
+                           CardBatchRepository cardBatchRepository,
+                           EncryptionService encryptionService,
+                           CardFingerprintService fingerprintService,
+                           BalanceSummaryService balanceSummaryService,
+                           PlatformTransactionManager transactionManager,
+                           Validator validator,
+                           ObjectMapper objectMapper,
+                           @Value("${app.cards.bulk.chunk-size:2000}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.cardBatchRepository = cardBatchRepository;
+        this.encryptionService = encryptionService;
+        this.fingerprintService = fingerprintService;
+        this.balanceSummaryService = balanceSummaryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    // JSON-массив CreateCardRequest читается потоково, без загрузки всего тела в память
+    public BulkCardSummary importJson(InputStream in, Writer out) {
+        try (MappingIterator<CreateCardRequest> values = objectMapper.readerFor(CreateCardRequest.class).readValues(in)) {
+            return importCards(new Iterator<>() {
+                private String syntaxError;
+                private boolean finished;
+
+                // Сломанный синтаксис JSON дальше не читается: отдаём его последней строкой-ошибкой
+                @Override
+                public boolean hasNext() {
+                    if (finished) {
+                        return false;
+                    }
+                    try {
+                        return values.hasNext();
+                    } catch (RuntimeException e) {
+                        syntaxError = "Malformed JSON: " + jsonError(e);
+                        return true;
+                    }
+                }
+
+                @Override
+                public Row next() {
+                    if (syntaxError != null) {
+                        finished = true;
+                        return Row.malformed(syntaxError);
+                    }
+                    try {
+                        return Row.of(values.next());
+                    } catch (RuntimeJsonMappingException e) {
+                        // MappingIterator пропускает испорченный элемент и продолжает со следующего
+                        return Row.malformed("Malformed row: " + jsonError(e));
+                    }
+                }
+            }, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read bulk request", e);
+        }
+    }
+
+    private static String jsonError(RuntimeException e) {
+        return e.getCause() instanceof JsonProcessingException cause ? cause.getOriginalMessage() : e.getMessage();
+    }
+
+    // CSV с заголовком cardNumber,cardHolder,expirationDate,userId (порядок колонок любой), даты в ISO-формате
+    public BulkCardSummary importCsv(Reader in, Writer out) {
+        BufferedReader reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        try {
+            String header = reader.readLine();
+            if (header == null) {
+                return importCards(Collections.emptyIterator(), out);
+            }
+            Map<String, Integer> columns = csvColumns(header);
+            return importCards(new Iterator<>() {
+                private String line = nextDataLine(reader);
+
+                @Override
+                public boolean hasNext() {
+                    return line != null;
+                }
+
+                @Override
+                public Row next() {
+                    if (line == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Row row = parseCsvRow(line, columns);
+                    line = nextDataLine(reader);
+                    return row;
+                }
+            }, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read bulk CSV", e);
+        }
+    }
+
+    BulkCardSummary importCards(Iterator<Row> rows, Writer out) {
+        long start = System.nanoTime();
+        int total = 0;
+        int created = 0;
+        Set<Long> knownUsers = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            chunk.add(rows.next().withIndex(total++));
+            if (chunk.size() == chunkSize) {
+                created += importChunk(chunk, knownUsers, out);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += importChunk(chunk, knownUsers, out);
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        BulkCardSummary summary = new BulkCardSummary(total, created, total - created, elapsedMillis,
+                total * 1000L / elapsedMillis);
+        log.info("Bulk card import: {} rows, {} created, {} failed in {} ms ({} rows/s)",
+                total, created, total - created, elapsedMillis, summary.getRowsPerSecond());
+        writeLine(out, summary);
+        flush(out);
+        return summary;
+    }
+
+    private int importChunk(List<Row> chunk, Set<Long> knownUsers, Writer out) {
+        List<Row> valid = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            String error = row.error() != null ? row.error() : validate(row.request());
+            if (error != null) {
+                reject(out, row, error);
+            } else {
+                valid.add(row);
+            }
+        }
+
+        // Владельцы: только ещё не встречавшиеся id, одним запросом
+        Set<Long> unseen = new HashSet<>();
+        for (Row row : valid) {
+            if (!knownUsers.contains(row.request().getUserId())) {
+                unseen.add(row.request().getUserId());
+            }
+        }
+        if (!unseen.isEmpty()) {
+            knownUsers.addAll(userRepository.findExistingIds(unseen));
+        }
+
+        List<Row> owned = new ArrayList<>(valid.size());
+        for (Row row : valid) {
+            if (knownUsers.contains(row.request().getUserId())) {
+                owned.add(row);
+            } else {
+                reject(out, row, "User not found");
+            }
+        }
+
+        List<String> fingerprints = fingerprintService.fingerprintAll(
+                owned.stream().map(r -> r.request().getCardNumber()).toList());
+        List<Prepared> prepared = new ArrayList<>(owned.size());
+        for (int i = 0; i < owned.size(); i++) {
+            prepared.add(new Prepared(owned.get(i), fingerprints.get(i)));
+        }
+
+        int inserted = insertUnique(prepared, out, true);
+        flush(out);
+        return inserted;
+    }
+
+    // Дубли ищутся множествами: внутри пачки — по HashSet, с базой — одним IN-запросом.
+    // Если между проверкой и вставкой ту же карту выпустил другой запрос, пачка перепроверяется один раз;
+    // если база отвергла пачку снова или по другому ограничению — см. insertSplitting.
+    private int insertUnique(List<Prepared> prepared, Writer out, boolean retryOnConflict) {
+        if (prepared.isEmpty()) {
+            return 0;
+        }
+        Set<String> existing = cardRepository.findExistingFingerprints(
+                prepared.stream().map(Prepared::fingerprint).toList());
+        Set<String> seen = new HashSet<>();
+        List<Prepared> unique = new ArrayList<>(prepared.size());
+        for (Prepared p : prepared) {
+            if (existing.contains(p.fingerprint())) {
+                reject(out, p.row(), "Card number already exists");
+            } else if (!seen.add(p.fingerprint())) {
+                reject(out, p.row(), "Duplicate card number in upload");
+            } else {
+                unique.add(p);
+            }
+        }
+        if (unique.isEmpty()) {
+            return 0;
+        }
+
+        List<String> numbers = unique.stream().map(p -> p.row().request().getCardNumber()).toList();
+        List<String> encrypted = encryptionService.encryptAll(numbers);
+        List<Pending> pending = new ArrayList<>(unique.size());
+        for (int i = 0; i < unique.size(); i++) {
+            CreateCardRequest request = unique.get(i).row().request();
+            pending.add(new Pending(unique.get(i).row(), new CardBatchRepository.NewCard(
+                    CardService.maskCardNumber(request.getCardNumber()),
+                    encrypted.get(i),
+                    unique.get(i).fingerprint(),
+                    request.getCardHolder(),
+                    request.getExpirationDate(),
+                    request.getUserId())));
+        }
+
+        try {
+            insert(pending);
+            return pending.size();
+        } catch (DuplicateKeyException e) {
+            if (retryOnConflict) {
+                return insertUnique(unique, out, false);
+            }
+            return insertSplitting(pending, out);
+        } catch (DataIntegrityViolationException e) {
+            return insertSplitting(pending, out);
+        }
+    }
+
+    // База отвергла пачку целиком (гонка за номер карты, владельца удалили, значение не влезло в столбец):
+    // делим пополам, пока виновные строки не останутся по одной. Остальные строки вставляются,
+    // на k плохих строк уходит порядка k * log2(n) транзакций.
+    private int insertSplitting(List<Pending> pending, Writer out) {
+        int middle = pending.size() / 2;
+        return insertOrSplit(pending.subList(0, middle), out)
+                + insertOrSplit(pending.subList(middle, pending.size()), out);
+    }
+
+    private int insertOrSplit(List<Pending> pending, Writer out) {
+        try {
+            insert(pending);
+            return pending.size();
+        } catch (DataIntegrityViolationException e) {
+            if (pending.size() > 1) {
+                return insertSplitting(pending, out);
+            }
+            Row row = pending.get(0).row();
+            log.debug("Bulk card row {} rejected by database: {}", row.index(), e.getMostSpecificCause().getMessage());
+            reject(out, row, e instanceof DuplicateKeyException
+                    ? "Card number already exists"
+                    : "Rejected by database");
+            return 0;
+        }
+    }
+
+    private void insert(List<Pending> pending) {
+        List<CardBatchRepository.NewCard> cards = new ArrayList<>(pending.size());
+        SortedMap<Long, Integer> cardsByUser = new TreeMap<>();
+        for (Pending p : pending) {
+            cards.add(p.card());
+            cardsByUser.merge(p.card().userId(), 1, Integer::sum);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            cardBatchRepository.insertCards(cards);
+            balanceSummaryService.onCardsCreated(cardsByUser);
+        });
+    }
+
+    private String validate(CreateCardRequest request) {
+        Set<ConstraintViolation<CreateCardRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .reduce((a, b) -> a + "; " + b)
+                .orElseThrow();
+    }
+
+    private void reject(Writer out, Row row, String error) {
+        writeLine(out, new BulkCardError(row.index(), error));
+    }
+
+    private void writeLine(Writer out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsString(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write bulk response", e);
+        }
+    }
+
+    private void flush(Writer out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write bulk response", e);
+        }
+    }
+
+    private Map<String, Integer> csvColumns(String header) {
+        List<String> names = splitCsvLine(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        for (String required : CSV_HEADER.split(",")) {
+            if (!columns.containsKey(required)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header must contain " + CSV_HEADER);
+            }
+        }
+        return columns;
+    }
+
+    private static String nextDataLine(BufferedReader reader) {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read bulk CSV", e);
+        }
+    }
+
+    private Row parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsvLine(line);
+        CreateCardRequest request = new CreateCardRequest();
+        request.setCardNumber(column(values, columns, "cardNumber"));
+        request.setCardHolder(column(values, columns, "cardHolder"));
+        String expiration = column(values, columns, "expirationDate");
+        String userId = column(values, columns, "userId");
+        try {
+            request.setExpirationDate(expiration == null || expiration.isBlank() ? null : LocalDate.parse(expiration.trim()));
+        } catch (DateTimeParseException e) {
+            return Row.malformed("expirationDate: must be an ISO date (yyyy-MM-dd)");
+        }
+        try {
+            request.setUserId(userId == null || userId.isBlank() ? null : Long.valueOf(userId.trim()));
+        } catch (NumberFormatException e) {
+            return Row.malformed("userId: must be a number");
+        }
+        return Row.of(request);
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        return index < values.size() ? values.get(index) : null;
+    }
+
+    // Разбор строки CSV с кавычками в стиле RFC 4180 ("" внутри кавычек — сама кавычка), как пишет ExportService
+    static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    record Row(int index, CreateCardRequest request, String error) {
+
+        static Row of(CreateCardRequest request) {
+            return request == null ? malformed("Empty row") : new Row(-1, request, null);
+        }
+
+        static Row malformed(String error) {
+            return new Row(-1, null, error);
+        }
+
+        Row withIndex(int index) {
+            return new Row(index, request, error);
+        }
+    }
+
+    private record Prepared(Row row, String fingerprint) {
+    }
+
+    private record Pending(Row row, CardBatchRepository.NewCard card) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+
+// Детерминированный keyed-HMAC отпечаток номера карты для поиска дублей без участия шифра
+@Service
+public class CardFingerprintService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    // Как в EncryptionService: меньшие пачки дешевле посчитать в одном потоке
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private final SecretKeySpec keySpec;
+    private final ThreadLocal<Mac> macs;
+
+    public CardFingerprintService(@Value("${app.card.fingerprint-key}") String fingerprintKey) {
+        this.keySpec = new SecretKeySpec(fingerprintKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String fingerprint(String cardNumber) {
+        byte[] digest = macs.get().doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    // Mac у каждого потока свой (ThreadLocal), поэтому parallelStream безопасен
+    public List<String> fingerprintAll(List<String> cardNumbers) {
+        if (cardNumbers.size() < PARALLEL_THRESHOLD) {
+            return cardNumbers.stream().map(this::fingerprint).toList();
+        }
+        return cardNumbers.parallelStream().map(this::fingerprint).toList();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (Exception e) {
+            throw new RuntimeException("Error while initializing HMAC", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Операция с картами, время и исход которой пишутся в bank.card.operation (см. CardOperationMetrics)
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CardOperation {
+
+    // значение тега operation
+    String value();
+}
@@ -0,0 +1,68 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Время и исход операций с картами: bank.card.operation{operation, outcome}.
+// _count таймера по outcome — это и есть счётчик успешных и отклонённых операций.
+// Аспект стоит снаружи транзакционного прокси (@Transactional — LOWEST_PRECEDENCE), поэтому коммит входит в замер,
+// а ошибка коммита попадает в outcome=error. Но не раньше ExposeInvocationInterceptor (HIGHEST_PRECEDENCE + 1):
+// без него аннотация не привязывается к аргументу совета.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class CardOperationMetrics {
+
+    static final String METER_NAME = "bank.card.operation";
+
+    static final String SUCCESS = "success";
+    static final String REJECTED = "rejected";
+    static final String BACKPRESSURE = "backpressure";
+    static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+    // Timer.builder(...).register() на каждый вызов ищет метр в реестре — кэшируем по паре тегов
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public CardOperationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("@annotation(operation)")
+    public Object record(ProceedingJoinPoint joinPoint, CardOperation operation) throws Throwable {
+        long start = System.nanoTime();
+        String outcome = ERROR;
+        try {
+            Object result = joinPoint.proceed();
+            outcome = SUCCESS;
+            return result;
+        } catch (IllegalArgumentException | AccessDeniedException e) {
+            outcome = REJECTED;
+            throw e;
+        } catch (LedgerBackpressureException e) {
+            outcome = BACKPRESSURE;
+            throw e;
+        } finally {
+            timer(operation.value(), outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + ':' + outcome, key -> Timer.builder(METER_NAME)
+                .description("Card operation latency by outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.CursorPage;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResult;
 import com.example.bankcards.entity.*;
+import com.example.bankcards.repository.CardBatchRepository;
 import com.example.bankcards.repository.CardRepository;
-import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
@@ -15,39 +20,55 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class CardService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final EncryptionService encryptionService;
-    private final TransactionRepository transactionRepository;
+    private final CardFingerprintService fingerprintService;
+    private final TransferEngine transferEngine;
+    private final CardBatchRepository cardBatchRepository;
+    private final BalanceSummaryService balanceSummaryService;
+    private final LedgerWriter ledgerWriter;
 
     @Transactional(readOnly = true)
     public Page<CardDto> getUserCards(Long userId, Pageable pageable) {
-        return cardRepository.findByUserId(userId, pageable)
-                .map(this::convertToDto);
+        return cardRepository.findDtosByUserId(userId, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<CardDto> getUserCards(Long userId, String after, int size) {
+        int pageSize = cursorPageSize(size);
+        return toCursorPage(cardRepository.findDtosByUserIdAfter(
+                userId, decodeCardCursor(after), Limit.of(pageSize + 1)), pageSize);
     }
 
     @Transactional
+    @CardOperation("create")
     public CardDto createCard(CreateCardRequest request) {
         User user = userRepository.findById(request.getUserId())
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
-        String encryptedNumber = encryptionService.encrypt(request.getCardNumber());
+        String fingerprint = fingerprintService.fingerprint(request.getCardNumber());
 
-        if (cardRepository.existsByEncryptedCardNumber(encryptedNumber)) {
+        if (cardRepository.existsByCardFingerprint(fingerprint)) {
             throw new IllegalArgumentException("Card number already exists");
         }
 
+        String encryptedNumber = encryptionService.encrypt(request.getCardNumber());
         String maskedNumber = maskCardNumber(request.getCardNumber());
 
         Card card = new Card();
         card.setCardNumber(maskedNumber);
         card.setEncryptedCardNumber(encryptedNumber);
+        card.setCardFingerprint(fingerprint);
         card.setCardHolder(request.getCardHolder());
         card.setExpirationDate(request.getExpirationDate());
         card.setStatus(CardStatus.ACTIVE);
@@ -55,10 +76,12 @@ public class CardService {
         card.setUser(user);
 
         Card savedCard = cardRepository.save(card);
+        balanceSummaryService.onCardCreated(user.getId(), savedCard.getBalance(), true);
         return convertToDto(savedCard);
     }
 
     @Transactional
+    @CardOperation("block")
     public CardDto blockCard(Long cardId, Long userId) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new IllegalArgumentException("Card not found"));
@@ -71,11 +94,16 @@ public class CardService {
         }
 
         // Меняем статус
+        boolean wasActive = card.getStatus() == CardStatus.ACTIVE;
         card.setStatus(CardStatus.BLOCKED);
-        return convertToDto(cardRepository.save(card));
+        Card saved = cardRepository.save(card);
+        cardRepository.flush(); // строка карты блокируется раньше сводки — тот же порядок, что и в переводах
+        balanceSummaryService.onStatusChanged(saved.getUser().getId(), wasActive, false);
+        return convertToDto(saved);
     }
 
     @Transactional
+    @CardOperation("activate")
     public CardDto activateCard(Long cardId, Long userId) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new IllegalArgumentException("Card not found"));
@@ -84,13 +112,23 @@ public class CardService {
             throw new AccessDeniedException("You can only activate your own cards");
         }
 
+        boolean wasActive = card.getStatus() == CardStatus.ACTIVE;
         card.setStatus(CardStatus.ACTIVE);
-        return convertToDto(cardRepository.save(card));
+        Card saved = cardRepository.save(card);
+        cardRepository.flush();
+        balanceSummaryService.onStatusChanged(userId, wasActive, true);
+        return convertToDto(saved);
     }
 
     @Transactional
+    @CardOperation("delete")
     public void deleteCard(Long cardId) {
-        cardRepository.deleteById(cardId);
+        cardRepository.findById(cardId).ifPresent(card -> {
+            cardRepository.delete(card);
+            cardRepository.flush();
+            balanceSummaryService.onCardDeleted(card.getUser().getId(), card.getBalance(),
+                    card.getStatus() == CardStatus.ACTIVE);
+        });
     }
 
     @Transactional(readOnly = true)
@@ -105,85 +143,323 @@ public class CardService {
         return card.getBalance();
     }
 
-    private String maskCardNumber(String cardNumber) {
+    // Статические: нужны DataInitializer и бенчмаркам, состояния сервиса не используют
+    public static String maskCardNumber(String cardNumber) {
         if (cardNumber.length() >= 4) {
             return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
         }
         return cardNumber;
     }
 
+    @CardOperation("transfer")
     public void transferBetweenCards(Long userId, TransferRequest request) {
-        Card fromCard = cardRepository.findByIdAndUserId(request.getFromCardId(), userId)
-                .orElseThrow(() -> new IllegalArgumentException("Source card not found or not yours"));
-
-        Card toCard = cardRepository.findByIdAndUserId(request.getToCardId(), userId)
-                .orElseThrow(() -> new IllegalArgumentException("Target card not found or not yours"));
+        transferBetweenCards(userId, request, () -> { });
+    }
 
-        if (fromCard.getBalance().compareTo(request.getAmount()) < 0) {
-            throw new IllegalArgumentException("Insufficient balance");
+    // beforeCommit выполняется в транзакции перевода сразу после проводки (при повторе — в каждой попытке)
+    @CardOperation("transfer")
+    public void transferBetweenCards(Long userId, TransferRequest request, Runnable beforeCommit) {
+        ledgerWriter.awaitCapacity();
+        if (transferEngine.getMode() == TransferEngine.Mode.ATOMIC) {
+            transferEngine.inTransaction(() -> {
+                switch (moveFundsAtomically(userId, request)) {
+                    case SOURCE_REJECTED -> {
+                        cardRepository.findByIdAndUserId(request.getFromCardId(), userId)
+                                .orElseThrow(() -> new IllegalArgumentException("Source card not found or not yours"));
+                        throw new IllegalArgumentException("Insufficient balance");
+                    }
+                    case TARGET_REJECTED -> throw new IllegalArgumentException("Target card not found or not yours");
+                    default -> {
+                        ledgerWriter.appendTransfer(request.getFromCardId(), request.getToCardId(), request.getAmount());
+                        balanceSummaryService.onTransfer(userId);
+                        beforeCommit.run();
+                        return null;
+                    }
+                }
+            });
+            return;
         }
 
-        // списание и зачисление
-        fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
-        toCard.setBalance(toCard.getBalance().add(request.getAmount()));
-
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
+        transferEngine.withLockedCards(request.getFromCardId(), request.getToCardId(), (fromCard, toCard) -> {
+            if (!fromCard.getUser().getId().equals(userId)) {
+                throw new IllegalArgumentException("Source card not found or not yours");
+            }
+            if (!toCard.getUser().getId().equals(userId)) {
+                throw new IllegalArgumentException("Target card not found or not yours");
+            }
+
+            if (fromCard.getBalance().compareTo(request.getAmount()) < 0) {
+                throw new IllegalArgumentException("Insufficient balance");
+            }
+
+            // списание и зачисление
+            fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
+            toCard.setBalance(toCard.getBalance().add(request.getAmount()));
+
+            cardRepository.save(fromCard);
+            cardRepository.save(toCard);
+            ledgerWriter.appendTransfer(fromCard.getId(), toCard.getId(), request.getAmount());
+            balanceSummaryService.onTransfer(userId);
+            beforeCommit.run();
+            return null;
+        });
     }
 
-    @Transactional
+    @CardOperation("deposit")
     public CardDto depositToCard(Long cardId, BigDecimal amount) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+        return depositToCard(cardId, amount, dto -> { });
+    }
 
-        if (card.getStatus() == CardStatus.BLOCKED || card.getStatus() == CardStatus.EXPIRED) {
-            throw new IllegalArgumentException("Cannot deposit to a blocked or expired card");
+    @CardOperation("deposit")
+    public CardDto depositToCard(Long cardId, BigDecimal amount, Consumer<CardDto> beforeCommit) {
+        if (transferEngine.getMode() == TransferEngine.Mode.ATOMIC) {
+            return transferEngine.inTransaction(() -> {
+                if (cardRepository.depositIfActive(cardId, amount) == 0) {
+                    cardRepository.findById(cardId)
+                            .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+                    throw new IllegalArgumentException("Cannot deposit to a blocked or expired card");
+                }
+                balanceSummaryService.onDeposit(cardId, amount);
+                CardDto dto = cardRepository.findById(cardId)
+                        .map(CardService::convertToDto)
+                        .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+                beforeCommit.accept(dto);
+                return dto;
+            });
         }
 
-        card.setBalance(card.getBalance().add(amount));
-        return convertToDto(cardRepository.save(card));
+        return transferEngine.withLockedCard(cardId, card -> {
+            if (card.getStatus() == CardStatus.BLOCKED || card.getStatus() == CardStatus.EXPIRED) {
+                throw new IllegalArgumentException("Cannot deposit to a blocked or expired card");
+            }
+
+            card.setBalance(card.getBalance().add(amount));
+            Card saved = cardRepository.save(card);
+            balanceSummaryService.onDeposit(cardId, amount);
+            CardDto dto = convertToDto(saved);
+            beforeCommit.accept(dto);
+            return dto;
+        });
     }
 
     @Transactional(readOnly = true)
     public Page<CardDto> getAllCards(Pageable pageable) {
-        return cardRepository.findAll(pageable)
-                .map(this::convertToDto);
+        return cardRepository.findAllDtos(pageable);
     }
 
-    @Transactional
+    @CardOperation("transfer")
     public String transferBetweenCards(User user, TransferRequest request) {
-        Card fromCard = cardRepository.findById(request.getFromCardId())
-                .orElseThrow(() -> new IllegalArgumentException("From card not found"));
-        Card toCard = cardRepository.findById(request.getToCardId())
-                .orElseThrow(() -> new IllegalArgumentException("To card not found"));
+        ledgerWriter.awaitCapacity();
+        if (transferEngine.getMode() == TransferEngine.Mode.ATOMIC) {
+            return transferEngine.inTransaction(() -> {
+                switch (moveFundsAtomically(user.getId(), request)) {
+                    case SOURCE_REJECTED -> {
+                        Card fromCard = cardRepository.findById(request.getFromCardId())
+                                .orElseThrow(() -> new IllegalArgumentException("From card not found"));
+                        if (!fromCard.getUser().getId().equals(user.getId())) {
+                            throw new AccessDeniedException("You can only transfer between your own cards");
+                        }
+                        throw new IllegalArgumentException("Insufficient funds");
+                    }
+                    case TARGET_REJECTED -> {
+                        cardRepository.findById(request.getToCardId())
+                                .orElseThrow(() -> new IllegalArgumentException("To card not found"));
+                        throw new AccessDeniedException("You can only transfer between your own cards");
+                    }
+                    default -> {
+                        ledgerWriter.appendTransfer(request.getFromCardId(), request.getToCardId(), request.getAmount());
+                        balanceSummaryService.onTransfer(user.getId());
+                        return "Transfer successful";
+                    }
+                }
+            });
+        }
+
+        return transferEngine.withLockedCards(request.getFromCardId(), request.getToCardId(), (fromCard, toCard) -> {
+            if (!fromCard.getUser().getId().equals(user.getId()) ||
+                    !toCard.getUser().getId().equals(user.getId())) {
+                throw new AccessDeniedException("You can only transfer between your own cards");
+            }
+
+            if (fromCard.getBalance().compareTo(request.getAmount()) < 0) {
+                throw new IllegalArgumentException("Insufficient funds");
+            }
+
+            fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
+            toCard.setBalance(toCard.getBalance().add(request.getAmount()));
 
-        if (!fromCard.getUser().getId().equals(user.getId()) ||
-                !toCard.getUser().getId().equals(user.getId())) {
-            throw new AccessDeniedException("You can only transfer between your own cards");
+            cardRepository.save(fromCard);
+            cardRepository.save(toCard);
+
+            // запись в журнал уходит через outbox
+            ledgerWriter.appendTransfer(fromCard.getId(), toCard.getId(), request.getAmount());
+            balanceSummaryService.onTransfer(user.getId());
+
+            return "Transfer successful";
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<CardDto> getAllCards(String after, int size) {
+        int pageSize = cursorPageSize(size);
+        return toCursorPage(cardRepository.findDtosAfter(
+                decodeCardCursor(after), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    private int cursorPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    private Long decodeCardCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return 0L;
         }
+        return KeysetCursor.parseId(KeysetCursor.decode(after, 1)[0]);
+    }
+
+    // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+    private CursorPage<CardDto> toCursorPage(List<CardDto> cards, int pageSize) {
+        boolean hasNext = cards.size() > pageSize;
+        List<CardDto> content = hasNext ? new ArrayList<>(cards.subList(0, pageSize)) : cards;
+        String nextCursor = hasNext ? KeysetCursor.encode(content.get(pageSize - 1).getId()) : null;
+        return new CursorPage<>(content, content.size(), nextCursor);
+    }
 
-        if (fromCard.getBalance().compareTo(request.getAmount()) < 0) {
-            throw new IllegalArgumentException("Insufficient funds");
+    @CardOperation("transfer_batch")
+    public BatchTransferResponse transferBatch(Long userId, BatchTransferRequest request) {
+        List<TransferRequest> transfers = request.getTransfers();
+        ledgerWriter.awaitCapacity();
+        return request.getMode() == BatchTransferRequest.Mode.ALL_OR_NOTHING
+                ? transferEngine.inTransaction(() -> transferAllOrNothing(userId, transfers))
+                : transferEngine.inTransaction(() -> transferBestEffort(userId, transfers));
+    }
+
+    // Карты пачки блокируются в порядке id, переводы проверяются по очереди на текущих балансах в памяти,
+    // как если бы шли один за другим; в базу уходит итоговое изменение по каждой карте одним JDBC batch
+    private BatchTransferResponse transferAllOrNothing(Long userId, List<TransferRequest> transfers) {
+        Set<Long> cardIds = new TreeSet<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest t = transfers.get(i);
+            if (t.getFromCardId().equals(t.getToCardId())) {
+                throw new IllegalArgumentException("Transfer " + i + ": source and target card must differ");
+            }
+            cardIds.add(t.getFromCardId());
+            cardIds.add(t.getToCardId());
         }
 
-        fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
-        toCard.setBalance(toCard.getBalance().add(request.getAmount()));
+        SortedMap<Long, BigDecimal> balances = cardBatchRepository.lockBalances(cardIds, userId);
+        for (Long cardId : cardIds) {
+            if (!balances.containsKey(cardId)) {
+                throw new IllegalArgumentException("Card " + cardId + " not found or not yours");
+            }
+        }
 
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
+        Map<Long, BigDecimal> deltas = new TreeMap<>(); // порядок по id — защита от deadlock
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest t = transfers.get(i);
+            BigDecimal fromBalance = balances.get(t.getFromCardId());
+            if (fromBalance.compareTo(t.getAmount()) < 0) {
+                throw new IllegalArgumentException(
+                        "Transfer " + i + ": insufficient balance on card " + t.getFromCardId());
+            }
+            balances.put(t.getFromCardId(), fromBalance.subtract(t.getAmount()));
+            balances.merge(t.getToCardId(), t.getAmount(), BigDecimal::add);
+            deltas.merge(t.getFromCardId(), t.getAmount().negate(), BigDecimal::add);
+            deltas.merge(t.getToCardId(), t.getAmount(), BigDecimal::add);
+        }
+        deltas.values().removeIf(delta -> delta.signum() == 0);
+
+        // Строки заблокированы выше, условие в UPDATE сработать не должно — оставлено как страховка
+        int[] updated = cardBatchRepository.applyBalanceDeltas(deltas);
+        Iterator<Long> updatedIds = deltas.keySet().iterator();
+        for (int count : updated) {
+            Long cardId = updatedIds.next();
+            if (count == 0) {
+                throw new IllegalArgumentException("Insufficient balance on card " + cardId);
+            }
+        }
 
-        // ✅ сохраняем транзакцию
-        Transaction tx = new Transaction();
-        tx.setType(TransactionType.TRANSFER);
-        tx.setAmount(request.getAmount());
-        tx.setFromCard(fromCard);
-        tx.setToCard(toCard);
-        transactionRepository.save(tx);
+        ledgerWriter.appendTransfers(transfers);
+        balanceSummaryService.onTransfer(userId);
 
-        return "Transfer successful";
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            results.add(TransferResult.ok(i));
+        }
+        return new BatchTransferResponse(transfers.size(), 0, results);
+    }
+
+    // Переводы выполняются по очереди условными UPDATE, неудачный элемент не влияет на остальные
+    private BatchTransferResponse transferBestEffort(Long userId, List<TransferRequest> transfers) {
+        Set<Long> cardIds = new HashSet<>();
+        for (TransferRequest t : transfers) {
+            cardIds.add(t.getFromCardId());
+            cardIds.add(t.getToCardId());
+        }
+        Set<Long> owned = cardRepository.findOwnedIds(cardIds, userId);
+
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        List<TransferRequest> completed = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest t = transfers.get(i);
+            if (t.getFromCardId().equals(t.getToCardId())) {
+                results.add(TransferResult.failed(i, "Source and target card must differ"));
+            } else if (!owned.contains(t.getFromCardId())) {
+                results.add(TransferResult.failed(i, "Source card not found or not yours"));
+            } else if (!owned.contains(t.getToCardId())) {
+                results.add(TransferResult.failed(i, "Target card not found or not yours"));
+            } else if (cardRepository.debitIfSufficient(t.getFromCardId(), userId, t.getAmount()) == 0) {
+                results.add(TransferResult.failed(i, "Insufficient balance"));
+            } else if (cardRepository.credit(t.getToCardId(), userId, t.getAmount()) == 0) {
+                // карту-получателя удалили после проверки — возвращаем списанное
+                cardRepository.credit(t.getFromCardId(), userId, t.getAmount());
+                results.add(TransferResult.failed(i, "Target card not found or not yours"));
+            } else {
+                completed.add(t);
+                results.add(TransferResult.ok(i));
+            }
+        }
+
+        ledgerWriter.appendTransfers(completed);
+        if (!completed.isEmpty()) {
+            balanceSummaryService.onTransfer(userId);
+        }
+        return new BatchTransferResponse(completed.size(), transfers.size() - completed.size(), results);
+    }
+
+    private enum TransferOutcome {
+        DONE,
+        SOURCE_REJECTED,
+        TARGET_REJECTED
+    }
+
+    // Списание и зачисление двумя условными UPDATE без чтения карт.
+    // Любой отказ должен завершиться исключением у вызывающего, чтобы откатить уже выполненный UPDATE.
+    private TransferOutcome moveFundsAtomically(Long userId, TransferRequest request) {
+        Long fromId = request.getFromCardId();
+        Long toId = request.getToCardId();
+        BigDecimal amount = request.getAmount();
+
+        // UPDATE-ы идут в порядке возрастания id, как и блокировки в TransferEngine
+        if (fromId <= toId) {
+            if (cardRepository.debitIfSufficient(fromId, userId, amount) == 0) {
+                return TransferOutcome.SOURCE_REJECTED;
+            }
+            if (cardRepository.credit(toId, userId, amount) == 0) {
+                return TransferOutcome.TARGET_REJECTED;
+            }
+        } else {
+            if (cardRepository.credit(toId, userId, amount) == 0) {
+                return TransferOutcome.TARGET_REJECTED;
+            }
+            if (cardRepository.debitIfSufficient(fromId, userId, amount) == 0) {
+                return TransferOutcome.SOURCE_REJECTED;
+            }
+        }
+        return TransferOutcome.DONE;
     }
 
-    private CardDto convertToDto(Card card) {
+    public static CardDto convertToDto(Card card) {
         CardDto dto = new CardDto();
         dto.setId(card.getId());
         dto.setCardNumber(card.getCardNumber());
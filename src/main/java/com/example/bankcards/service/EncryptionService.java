@@ -1,12 +1,14 @@
 package com.example.bankcards.service;
-import org.springframework.security.crypto.encrypt.Encryptors;
-import org.springframework.security.crypto.encrypt.TextEncryptor;
-import org.springframework.security.crypto.keygen.KeyGenerators;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class EncryptionService {
@@ -14,17 +16,25 @@ public class EncryptionService {
     private static final String ALGORITHM = "AES";
     private static final String SECRET_KEY = "1234567890123456"; // 16 chars = 128 bit
 
-    private SecretKeySpec secretKeySpec;
+    // Ниже этого размера батч дешевле обработать в одном потоке
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final int MAX_POOLED_CIPHERS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final SecretKeySpec secretKeySpec;
+
+    // Cipher.getInstance + init дорогие, поэтому переиспользуем уже инициализированные экземпляры
+    private final CipherPool encryptCiphers = new CipherPool(Cipher.ENCRYPT_MODE);
+    private final CipherPool decryptCiphers = new CipherPool(Cipher.DECRYPT_MODE);
 
     public EncryptionService() {
-        this.secretKeySpec = new SecretKeySpec(SECRET_KEY.getBytes(), ALGORITHM);
+        this.secretKeySpec = new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), ALGORITHM);
     }
 
     public String encrypt(String input) {
+        Cipher cipher = encryptCiphers.borrow();
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec);
-            byte[] encrypted = cipher.doFinal(input.getBytes());
+            byte[] encrypted = cipher.doFinal(input.getBytes(StandardCharsets.UTF_8));
+            encryptCiphers.release(cipher);
             return Base64.getEncoder().encodeToString(encrypted);
         } catch (Exception e) {
             throw new RuntimeException("Error while encrypting", e);
@@ -32,13 +42,63 @@ public class EncryptionService {
     }
 
     public String decrypt(String encryptedInput) {
+        Cipher cipher = decryptCiphers.borrow();
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec);
-            byte[] decoded = Base64.getDecoder().decode(encryptedInput);
-            return new String(cipher.doFinal(decoded));
+            byte[] decrypted = cipher.doFinal(Base64.getDecoder().decode(encryptedInput));
+            decryptCiphers.release(cipher);
+            return new String(decrypted, StandardCharsets.UTF_8);
         } catch (Exception e) {
             throw new RuntimeException("Error while decrypting", e);
         }
     }
-}
\ No newline at end of file
+
+    public List<String> encryptAll(List<String> inputs) {
+        if (inputs.size() < PARALLEL_THRESHOLD) {
+            return inputs.stream().map(this::encrypt).toList();
+        }
+        return inputs.parallelStream().map(this::encrypt).toList();
+    }
+
+    public List<String> decryptAll(List<String> encryptedInputs) {
+        if (encryptedInputs.size() < PARALLEL_THRESHOLD) {
+            return encryptedInputs.stream().map(this::decrypt).toList();
+        }
+        return encryptedInputs.parallelStream().map(this::decrypt).toList();
+    }
+
+    private class CipherPool {
+
+        private final int mode;
+        private final Queue<Cipher> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        CipherPool(int mode) {
+            this.mode = mode;
+        }
+
+        Cipher borrow() {
+            Cipher cipher = idle.poll();
+            if (cipher != null) {
+                idleCount.decrementAndGet();
+                return cipher;
+            }
+            try {
+                Cipher created = Cipher.getInstance(ALGORITHM);
+                created.init(mode, secretKeySpec);
+                return created;
+            } catch (Exception e) {
+                throw new RuntimeException("Error while initializing cipher", e);
+            }
+        }
+
+        // После doFinal шифр в режиме ECB возвращается в исходное состояние и готов к повторному использованию.
+        // Если doFinal упал, состояние не гарантировано — такой шифр не возвращаем.
+        void release(Cipher cipher) {
+            if (idleCount.incrementAndGet() <= MAX_POOLED_CIPHERS) {
+                idle.offer(cipher);
+            } else {
+                idleCount.decrementAndGet();
+            }
+        }
+    }
+}
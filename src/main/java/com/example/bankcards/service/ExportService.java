@@ -0,0 +1,111 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Потоковая выгрузка: строки идут из курсора БД прямо в ответ, память не зависит от размера таблицы
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void exportCards(ExportFormat format, Writer out) {
+        try (Stream<CardDto> rows = cardRepository.streamAllDtos()) {
+            write(rows, format, out,
+                    "id,cardNumber,cardHolder,expirationDate,status,balance,userId",
+                    c -> new Object[]{c.getId(), c.getCardNumber(), c.getCardHolder(), c.getExpirationDate(),
+                            c.getStatus(), c.getBalance(), c.getUserId()});
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportUsers(ExportFormat format, Writer out) {
+        try (Stream<UserDto> rows = userRepository.streamAllDtos()) {
+            write(rows, format, out,
+                    "id,username,email,role",
+                    u -> new Object[]{u.getId(), u.getUsername(), u.getEmail(), u.getRole()});
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportTransactions(ExportFormat format, Writer out) {
+        try (Stream<TransactionDto> rows = transactionRepository.streamAllDtos()) {
+            write(rows, format, out,
+                    "id,type,amount,fromCardId,toCardId,timestamp",
+                    t -> new Object[]{t.getId(), t.getType(), t.getAmount(), t.getFromCardId(),
+                            t.getToCardId(), t.getTimestamp()});
+        }
+    }
+
+    private <T> void write(Stream<T> rows,
+                           ExportFormat format,
+                           Writer out,
+                           String csvHeader,
+                           Function<T, Object[]> csvColumns) {
+        try {
+            if (format == ExportFormat.CSV) {
+                out.write(csvHeader);
+                out.write('\n');
+            }
+            int written = 0;
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                T row = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writeCsvLine(out, csvColumns.apply(row));
+                } else {
+                    out.write(objectMapper.writeValueAsString(row));
+                    out.write('\n');
+                }
+                if (++written % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Export failed", e);
+        }
+    }
+
+    private void writeCsvLine(Writer out, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            if (values[i] != null) {
+                out.write(escapeCsv(values[i].toString()));
+            }
+        }
+        out.write('\n');
+    }
+
+    private String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.bankcards.service;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Индекс завершённых запросов в памяти перед таблицей idempotency_keys; запись живёт не дольше TTL ключа.
+// Как в JwtTokenCache, рядом с картой — очередь по сроку: вытеснение берёт голову очереди, без обхода всех записей.
+public class IdempotencyCache {
+
+    private static final Comparator<Expiry> EXPIRY_ORDER =
+            Comparator.comparingLong(Expiry::expiresAtMillis).thenComparingLong(Expiry::seq);
+
+    private final Map<String, Slot> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Expiry> expiryQueue = new ConcurrentSkipListSet<>(EXPIRY_ORDER);
+    private final AtomicLong sequence = new AtomicLong();
+    private final int maxSize;
+
+    public IdempotencyCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Entry get(String key) {
+        Slot slot = entries.get(key);
+        if (slot == null) {
+            return null;
+        }
+        if (slot.entry().isExpired(System.currentTimeMillis())) {
+            remove(key, slot);
+            return null;
+        }
+        return slot.entry();
+    }
+
+    public void put(String key, Entry entry) {
+        if (maxSize <= 0) {
+            return;
+        }
+        evictExpired(System.currentTimeMillis());
+        while (entries.size() >= maxSize) {
+            Expiry head = expiryQueue.pollFirst();
+            if (head == null) {
+                break;
+            }
+            evictSlot(head);
+        }
+        Expiry expiry = new Expiry(entry.expiresAtMillis(), sequence.incrementAndGet(), key);
+        expiryQueue.add(expiry);
+        Slot previous = entries.put(key, new Slot(entry, expiry));
+        if (previous != null) {
+            expiryQueue.remove(previous.expiry());
+        }
+    }
+
+    public void evictExpired() {
+        evictExpired(System.currentTimeMillis());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Истёкшие записи лежат в голове очереди: каждая снимается один раз, в сумме O(log n) на запись
+    private void evictExpired(long now) {
+        for (Expiry head : expiryQueue) {
+            if (now < head.expiresAtMillis()) {
+                return;
+            }
+            if (expiryQueue.remove(head)) {
+                evictSlot(head);
+            }
+        }
+    }
+
+    private void evictSlot(Expiry expiry) {
+        Slot slot = entries.get(expiry.key());
+        if (slot != null && slot.expiry().equals(expiry)) {
+            entries.remove(expiry.key(), slot);
+        }
+    }
+
+    private void remove(String key, Slot slot) {
+        if (entries.remove(key, slot)) {
+            expiryQueue.remove(slot.expiry());
+        }
+    }
+
+    private record Slot(Entry entry, Expiry expiry) {
+    }
+
+    // seq различает записи с одинаковым сроком, иначе множество склеило бы их
+    private record Expiry(long expiresAtMillis, long seq, String key) {
+    }
+
+    public record Entry(String requestHash, String responseBody, long expiresAtMillis) {
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Повтор запроса с тем же Idempotency-Key возвращает сохранённый ответ, не выполняя операцию снова.
+// Порядок: индекс в памяти -> захват ключа в БД (INSERT ... ON CONFLICT DO NOTHING) -> операция, которая
+// сохраняет ответ в своей же транзакции через переданный ей complete.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final IdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyCache cache;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(IdempotencyService::newDigest);
+
+    public IdempotencyService(IdempotencyKeyRepository repository,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.cache-max-size:100000}") int cacheMaxSize,
+                              @Value("${app.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${app.idempotency.in-progress-timeout:PT1M}") Duration inProgressTimeout) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.cache = new IdempotencyCache(cacheMaxSize);
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+    }
+
+    // action получает complete и вызывает его внутри своей транзакции перед коммитом: ключ становится
+    // COMPLETED тем же коммитом, что и движение денег, и не остаётся IN_PROGRESS после успешной операции.
+    public <T> T execute(Long userId, String key, String operation, Object request,
+                         Class<T> responseType, Function<Consumer<T>, T> action) {
+        if (key == null) {
+            return action.apply(response -> { });
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1.." + MAX_KEY_LENGTH + " characters");
+        }
+
+        String cacheKey = userId + ":" + key;
+        String requestHash = requestHash(operation, request);
+
+        IdempotencyCache.Entry cached = cache.get(cacheKey);
+        if (cached != null) {
+            return replay(cached.requestHash(), cached.responseBody(), requestHash, responseType);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+        IdempotencyKeyRepository.StoredKey completed = claim(userId, key, operation, requestHash, now, expiresAt);
+        if (completed != null) {
+            cache.put(cacheKey, new IdempotencyCache.Entry(
+                    completed.requestHash(), completed.responseBody(), toMillis(completed.expiresAt())));
+            return replay(completed.requestHash(), completed.responseBody(), requestHash, responseType);
+        }
+
+        AtomicReference<String> storedBody = new AtomicReference<>();
+        T result;
+        try {
+            result = action.apply(response -> {
+                String body = toJson(response);
+                repository.complete(userId, key, body);
+                storedBody.set(body);
+            });
+        } catch (RuntimeException e) {
+            // Транзакция операции откатилась вместе с complete, деньги не двигались — ключ можно использовать снова
+            repository.release(userId, key);
+            throw e;
+        }
+
+        String body = storedBody.get();
+        if (body == null) {
+            // Операция без своей транзакции complete не вызывала — сохраняем ответ отдельно
+            body = toJson(result);
+            repository.complete(userId, key, body);
+        }
+        cache.put(cacheKey, new IdempotencyCache.Entry(requestHash, body, toMillis(expiresAt)));
+        return result;
+    }
+
+    // null — ключ захвачен этим запросом; иначе — завершённый ранее запрос с этим ключом.
+    // Обычно это один INSERT; повтор нужен только если занятый ключ успел истечь или освободиться.
+    private IdempotencyKeyRepository.StoredKey claim(Long userId, String key, String operation, String requestHash,
+                                                     LocalDateTime now, LocalDateTime expiresAt) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            if (repository.tryClaim(userId, key, operation, requestHash, now, expiresAt)) {
+                return null;
+            }
+            Optional<IdempotencyKeyRepository.StoredKey> existing = repository.find(userId, key);
+            if (existing.isEmpty()) {
+                continue;
+            }
+            IdempotencyKeyRepository.StoredKey stored = existing.get();
+            if (stored.expiresAt().isBefore(now)) {
+                repository.deleteIfExpired(userId, key, now);
+                continue;
+            }
+            if (stored.isCompleted()) {
+                return stored;
+            }
+            if (!stored.requestHash().equals(requestHash)) {
+                throw new IllegalArgumentException("Idempotency-Key was already used with a different request");
+            }
+            // Запрос, захвативший ключ, давно умер, не успев ни завершить, ни освободить его
+            LocalDateTime staleBefore = now.minus(inProgressTimeout);
+            if (stored.createdAt().isBefore(staleBefore)) {
+                repository.releaseStale(userId, key, staleBefore);
+                continue;
+            }
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still in progress");
+        }
+        throw new IdempotencyConflictException("Could not acquire Idempotency-Key, retry later");
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        cache.evictExpired();
+        int removed = repository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.debug("Removed {} expired idempotency keys", removed);
+        }
+    }
+
+    // Горячий путь повтора: хэш запроса и поиск в индексе в памяти
+    public String requestHash(String operation, Object request) {
+        MessageDigest digest = digests.get();
+        digest.update(operation.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        try {
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            digest.reset();
+            throw new IllegalStateException("Cannot serialize request for idempotency check", e);
+        }
+    }
+
+    private <T> T replay(String storedHash, String body, String requestHash, Class<T> responseType) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used with a different request");
+        }
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored idempotent response", e);
+        }
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store idempotent response", e);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Очередь журнала переполнена — клиент должен повторить запрос позже
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class LedgerBackpressureException extends RuntimeException {
+
+    public LedgerBackpressureException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Состояние очереди журнала: глубина, пропускная способность писателя и задержка доставки
+@Component
+public class LedgerMetrics implements MeterBinder {
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder drainFailures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batchNanos = new LongAdder();
+    private final AtomicLong lastDrainLatencyMillis = new AtomicLong();
+    private final AtomicLong maxDrainLatencyMillis = new AtomicLong();
+
+    public void recordAppended(int count) {
+        appended.add(count);
+        queueDepth.addAndGet(count);
+    }
+
+    // latencyMillis — сколько самая старая запись пачки ждала в очереди
+    public void recordBatch(int size, long nanos, long latencyMillis) {
+        batches.increment();
+        drained.add(size);
+        queueDepth.accumulateAndGet(size, (depth, n) -> Math.max(0, depth - n));
+        batchNanos.add(nanos);
+        lastDrainLatencyMillis.set(latencyMillis);
+        maxDrainLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    public void recordDrainFailure() {
+        drainFailures.increment();
+    }
+
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    // Точное значение из таблицы; между опросами глубину двигают append-ы
+    public void updateQueueDepth(long depth) {
+        queueDepth.set(depth);
+    }
+
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    public long getDrained() {
+        return drained.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getDrainFailures() {
+        return drainFailures.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTotalBatchNanos() {
+        return batchNanos.sum();
+    }
+
+    public long getLastDrainLatencyMillis() {
+        return lastDrainLatencyMillis.get();
+    }
+
+    public long getMaxDrainLatencyMillis() {
+        return maxDrainLatencyMillis.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bank.ledger.queue.depth", this, LedgerMetrics::getQueueDepth).register(registry);
+        Gauge.builder("bank.ledger.drain.latency", this, m -> m.getLastDrainLatencyMillis() / 1e3)
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("bank.ledger.appended", this, LedgerMetrics::getAppended).register(registry);
+        FunctionCounter.builder("bank.ledger.drained", this, LedgerMetrics::getDrained).register(registry);
+        FunctionCounter.builder("bank.ledger.drain.failures", this, LedgerMetrics::getDrainFailures)
+                .register(registry);
+        FunctionCounter.builder("bank.ledger.rejected", this, LedgerMetrics::getRejected).register(registry);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.TransactionType;
+import com.example.bankcards.repository.LedgerOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Журнал операций через transactional outbox: перевод добавляет строку в transaction_outbox в своей транзакции,
+// фоновый писатель переносит записи в transactions пачками. Доставка «хотя бы один раз», дубли отсекает outbox_id.
+@Slf4j
+@Service
+public class LedgerWriter {
+
+    private final LedgerOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerMetrics metrics;
+    private final int batchSize;
+    private final long maxPending;
+    private final long backpressureWaitMillis;
+
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Condition drained = drainLock.newCondition();
+
+    public LedgerWriter(LedgerOutboxRepository outboxRepository,
+                        PlatformTransactionManager transactionManager,
+                        LedgerMetrics metrics,
+                        @Value("${app.ledger.batch-size:500}") int batchSize,
+                        @Value("${app.ledger.max-pending:50000}") long maxPending,
+                        @Value("${app.ledger.backpressure-wait-ms:200}") long backpressureWaitMillis) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.backpressureWaitMillis = backpressureWaitMillis;
+    }
+
+    // Вызывается до начала транзакции перевода, чтобы ожидание не держало блокировки карт
+    public void awaitCapacity() {
+        if (metrics.getQueueDepth() < maxPending) {
+            return;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(backpressureWaitMillis);
+        drainLock.lock();
+        try {
+            while (metrics.getQueueDepth() >= maxPending && remaining > 0) {
+                remaining = drained.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            drainLock.unlock();
+        }
+        if (metrics.getQueueDepth() >= maxPending) {
+            metrics.recordRejected();
+            throw new LedgerBackpressureException("Ledger writer is behind, retry later");
+        }
+    }
+
+    public void appendTransfer(Long fromCardId, Long toCardId, BigDecimal amount) {
+        outboxRepository.append(TransactionType.TRANSFER, amount, fromCardId, toCardId);
+        countAfterCommit(1);
+    }
+
+    public void appendTransfers(List<TransferRequest> transfers) {
+        List<LedgerOutboxRepository.Entry> entries = new ArrayList<>(transfers.size());
+        for (TransferRequest t : transfers) {
+            entries.add(LedgerOutboxRepository.Entry.transfer(t.getAmount(), t.getFromCardId(), t.getToCardId()));
+        }
+        outboxRepository.appendAll(entries);
+        countAfterCommit(entries.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.ledger.drain-interval-ms:200}")
+    public void drain() {
+        try {
+            int count;
+            do {
+                count = drainBatch();
+            } while (count == batchSize);
+            metrics.updateQueueDepth(outboxRepository.count());
+        } catch (DataAccessException e) {
+            // Пачка откатилась целиком и останется в outbox до следующего прохода
+            metrics.recordDrainFailure();
+            log.warn("Ledger drain failed, will retry", e);
+        } finally {
+            drainLock.lock();
+            try {
+                drained.signalAll();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    // Перенос и удаление из outbox в одной транзакции
+    int drainBatch() {
+        long start = System.nanoTime();
+        List<LedgerOutboxRepository.Entry> entries = transactionTemplate.execute(status -> {
+            List<LedgerOutboxRepository.Entry> batch = outboxRepository.fetchBatch(batchSize);
+            if (!batch.isEmpty()) {
+                outboxRepository.writeToLedger(batch);
+                outboxRepository.delete(batch);
+            }
+            return batch;
+        });
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        long latencyMillis = Duration.between(entries.get(0).createdAt(), LocalDateTime.now()).toMillis();
+        metrics.recordBatch(entries.size(), System.nanoTime() - start, latencyMillis);
+        return entries.size();
+    }
+
+    // Глубину увеличиваем только после коммита: откатившийся перевод в очередь не попал
+    private void countAfterCommit(int count) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            metrics.recordAppended(count);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                metrics.recordAppended(count);
+            }
+        });
+    }
+}
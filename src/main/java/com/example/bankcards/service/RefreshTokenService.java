@@ -0,0 +1,98 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+// Непрозрачные refresh-токены с ротацией: каждый используется один раз и заменяется новым из той же семьи.
+// Повторное предъявление уже использованного токена — признак утечки, вся семья отзывается.
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository repository;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository repository,
+                               @Value("${jwt.refresh.ttl:P14D}") Duration ttl) {
+        this.repository = repository;
+        this.ttl = ttl;
+    }
+
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    // Возвращает id пользователя и новый refresh-токен; IllegalArgumentException, если токен недействителен.
+    // Погашение и выдача нового — в одной транзакции: упавшая вставка не оставит клиента без токена.
+    // Отзыв семьи при повторном предъявлении должен пережить исключение, поэтому IllegalArgumentException не откатывает.
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public Rotation rotate(String refreshToken) {
+        String hash = hash(refreshToken);
+        RefreshTokenRepository.StoredRefreshToken stored = repository.findByHash(hash)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+
+        if (stored.revoked()) {
+            repository.revokeFamily(stored.familyId());
+            throw new IllegalArgumentException("Refresh token has already been used");
+        }
+        // истёкший токен не гасим: он и так отклоняется, а повторное предъявление не должно выглядеть как утечка
+        if (stored.expiresAt().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Refresh token has expired");
+        }
+        if (!repository.consume(hash)) {
+            repository.revokeFamily(stored.familyId());
+            throw new IllegalArgumentException("Refresh token has already been used");
+        }
+        return new Rotation(stored.userId(), issue(stored.userId(), stored.familyId()));
+    }
+
+    public void revoke(String refreshToken) {
+        repository.findByHash(hash(refreshToken))
+                .ifPresent(stored -> repository.revokeFamily(stored.familyId()));
+    }
+
+    public void revokeAll(Long userId) {
+        repository.revokeAllForUser(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        repository.deleteExpired(LocalDateTime.now());
+    }
+
+    private String issue(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        LocalDateTime now = LocalDateTime.now();
+        repository.insert(hash(token), userId, familyId, now, now.plus(ttl));
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record Rotation(Long userId, String refreshToken) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.dto.TransactionFilter;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class TransactionService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final Comparator<TransactionDto> NEWEST_FIRST = Comparator
+            .comparing(TransactionDto::getTimestamp)
+            .thenComparing(TransactionDto::getId)
+            .reversed();
+
+    private final TransactionRepository transactionRepository;
+    private final CardRepository cardRepository;
+
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionDto> getCardTransactions(Long cardId,
+                                                          Long userId,
+                                                          TransactionFilter filter,
+                                                          String cursor,
+                                                          int size) {
+        if (!cardRepository.existsByIdAndUserId(cardId, userId)) {
+            throw new IllegalArgumentException("Card not found or not yours");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        LocalDateTime beforeTimestamp = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = KeysetCursor.decode(cursor, 2);
+            beforeTimestamp = KeysetCursor.parseTimestamp(parts[0]);
+            beforeId = KeysetCursor.parseId(parts[1]);
+        }
+
+        // Исходящие и входящие читаются отдельно, каждая сторона — по своему индексу и не больше pageSize + 1 строк
+        List<TransactionDto> outgoing = transactionRepository.findCardHistorySlice(
+                cardId, true, filter, beforeTimestamp, beforeId, pageSize + 1);
+        List<TransactionDto> incoming = transactionRepository.findCardHistorySlice(
+                cardId, false, filter, beforeTimestamp, beforeId, pageSize + 1);
+
+        // Перевод с карты на неё же попадает в обе выборки
+        Map<Long, TransactionDto> merged = new LinkedHashMap<>();
+        outgoing.forEach(t -> merged.put(t.getId(), t));
+        incoming.forEach(t -> merged.putIfAbsent(t.getId(), t));
+
+        List<TransactionDto> rows = new ArrayList<>(merged.values());
+        rows.sort(NEWEST_FIRST);
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, rows.size(), null);
+        }
+        List<TransactionDto> page = rows.subList(0, pageSize);
+        TransactionDto last = page.get(pageSize - 1);
+        return new CursorPage<>(new ArrayList<>(page), pageSize,
+                KeysetCursor.encode(last.getTimestamp(), last.getId()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Выполняет изменение баланса карт в отдельной транзакции с повтором при конфликте.
+// ATOMIC — условные UPDATE без чтения сущностей, PESSIMISTIC — SELECT ... FOR UPDATE в порядке возрастания id,
+// OPTIMISTIC — проверка @Version при коммите.
+@Component
+public class TransferEngine {
+
+    public enum Mode {
+        ATOMIC,
+        PESSIMISTIC,
+        OPTIMISTIC
+    }
+
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMetrics metrics;
+    private final Mode mode;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public TransferEngine(CardRepository cardRepository,
+                          PlatformTransactionManager transactionManager,
+                          TransferMetrics metrics,
+                          @Value("${app.transfer.mode:ATOMIC}") Mode mode,
+                          @Value("${app.transfer.max-attempts:3}") int maxAttempts,
+                          @Value("${app.transfer.backoff-ms:5}") long backoffMillis) {
+        this.cardRepository = cardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.mode = mode;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public <T> T withLockedCards(Long fromCardId, Long toCardId, BiFunction<Card, Card, T> action) {
+        return executeWithRetry(() -> {
+            long start = System.nanoTime();
+
+            // Блокируем всегда в порядке возрастания id, поэтому встречные переводы не дают deadlock
+            Long firstId = fromCardId <= toCardId ? fromCardId : toCardId;
+            Long secondId = fromCardId <= toCardId ? toCardId : fromCardId;
+            Card first = load(firstId);
+            Card second = load(secondId);
+
+            metrics.recordLockWait(System.nanoTime() - start);
+
+            Card fromCard = first.getId().equals(fromCardId) ? first : second;
+            Card toCard = fromCard == first ? second : first;
+            return action.apply(fromCard, toCard);
+        });
+    }
+
+    public <T> T withLockedCard(Long cardId, Function<Card, T> action) {
+        return executeWithRetry(() -> {
+            long start = System.nanoTime();
+            Card card = load(cardId);
+            metrics.recordLockWait(System.nanoTime() - start);
+            return action.apply(card);
+        });
+    }
+
+    public <T> T inTransaction(Supplier<T> work) {
+        return executeWithRetry(work);
+    }
+
+    private <T> T executeWithRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(status -> work.get());
+                metrics.recordAttempts(attempt);
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                if (e instanceof OptimisticLockingFailureException) {
+                    metrics.recordConflict();
+                }
+                if (attempt >= maxAttempts) {
+                    metrics.recordAttempts(attempt);
+                    metrics.recordFailure();
+                    throw e;
+                }
+                metrics.recordRetry();
+                backoff(attempt);
+            }
+        }
+    }
+
+    // Full jitter: случайная пауза от 0 до backoff * 2^(attempt-1), чтобы конкуренты разошлись по времени
+    private void backoff(int attempt) {
+        if (backoffMillis <= 0) {
+            return;
+        }
+        long ceiling = backoffMillis << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private Card load(Long cardId) {
+        Optional<Card> card = mode == Mode.OPTIMISTIC
+                ? cardRepository.findById(cardId)
+                : cardRepository.findByIdForUpdate(cardId);
+        return card.orElseThrow(() -> new IllegalArgumentException("Card not found"));
+    }
+}
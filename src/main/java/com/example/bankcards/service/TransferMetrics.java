@@ -0,0 +1,108 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики конкуренции за строки карт при изменении баланса
+@Component
+public class TransferMetrics implements MeterBinder {
+
+    // attemptsHistogram[i] — сколько операций завершилось за i + 1 попыток, последний бакет — «и больше»
+    private static final int ATTEMPT_BUCKETS = 8;
+
+    private final LongAdder lockAcquisitions = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final AtomicLong maxLockWaitNanos = new AtomicLong();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final AtomicLongArray attemptsHistogram = new AtomicLongArray(ATTEMPT_BUCKETS);
+
+    public void recordLockWait(long nanos) {
+        lockAcquisitions.increment();
+        lockWaitNanos.add(nanos);
+        maxLockWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordConflict() {
+        conflicts.increment();
+    }
+
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    public void recordAttempts(int attempts) {
+        operations.increment();
+        attemptsHistogram.incrementAndGet(Math.min(attempts, ATTEMPT_BUCKETS) - 1);
+    }
+
+    public long getLockAcquisitions() {
+        return lockAcquisitions.sum();
+    }
+
+    public long getTotalLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    public long getMaxLockWaitNanos() {
+        return maxLockWaitNanos.get();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    // Конфликтов версий на одну завершённую операцию
+    public double getConflictRate() {
+        long total = operations.sum();
+        return total == 0 ? 0.0 : (double) conflicts.sum() / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("bank.transfer.lock.acquisitions", this, TransferMetrics::getLockAcquisitions)
+                .register(registry);
+        FunctionCounter.builder("bank.transfer.lock.wait", this, m -> m.getTotalLockWaitNanos() / 1e9)
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("bank.transfer.lock.wait.max", this, m -> m.getMaxLockWaitNanos() / 1e9)
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("bank.transfer.retries", this, TransferMetrics::getRetries).register(registry);
+        FunctionCounter.builder("bank.transfer.conflicts", this, TransferMetrics::getConflicts).register(registry);
+        FunctionCounter.builder("bank.transfer.failures", this, TransferMetrics::getFailures).register(registry);
+    }
+
+    public long[] getAttemptsHistogram() {
+        long[] snapshot = new long[ATTEMPT_BUCKETS];
+        for (int i = 0; i < ATTEMPT_BUCKETS; i++) {
+            snapshot[i] = attemptsHistogram.get(i);
+        }
+        return snapshot;
+    }
+}
@@ -4,12 +4,18 @@ import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtTokenCache;
+import com.example.bankcards.security.TokenRevocationService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -22,8 +28,12 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class UserService implements UserDetailsService {
 
+    private static final String EMAIL_CONSTRAINT = "ux_users_email";
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final JwtTokenCache tokenCache;
+    private final TokenRevocationService revocations;
 
     @Transactional(readOnly = true)
     public Optional<User> findByUsername(String username) {
@@ -42,29 +52,68 @@ public class UserService implements UserDetailsService {
                 .toList();
     }
 
-    @Transactional
+    // Дубли ловим по уникальным ограничениям users.username / users.email, без SELECT перед вставкой.
+    // Без общей транзакции: BCrypt не держит соединение, вставка коммитится в saveAndFlush.
     public User createUser(String username, String password, String email, Role role) {
-        if (userRepository.existsByUsername(username)) {
-            throw new RuntimeException("Username already exists");
-        }
-        if (userRepository.existsByEmail(email)) {
-            throw new RuntimeException("Email already exists");
-        }
-
         User user = new User();
         user.setUsername(username);
         user.setPassword(passwordEncoder.encode(password));
         user.setEmail(email);
         user.setRole(role);
 
-        return userRepository.save(user);
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException(isEmailViolation(e)
+                    ? "Email already exists"
+                    : "Username already exists", e);
+        }
+    }
+
+    private boolean isEmailViolation(DataIntegrityViolationException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase().contains(EMAIL_CONSTRAINT);
+            }
+        }
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase().contains(EMAIL_CONSTRAINT);
+    }
+
+    @Transactional
+    public UserDto changeRole(Long id, Role role) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        user.setRole(role);
+        User saved = userRepository.save(user);
+        afterCommit(() -> tokenCache.invalidateUser(saved.getUsername()));
+        return convertToDto(saved);
     }
 
     @Transactional
     public void deleteUser(Long id) {
+        userRepository.findById(id).ifPresent(user -> {
+            // refresh-токены удалит каскад, уже выданные access-токены перестают приниматься фильтром
+            revocations.revokeUser(user.getUsername());
+            // до коммита параллельный запрос успел бы положить пользователя в кэш заново
+            afterCommit(() -> tokenCache.invalidateUser(user.getUsername()));
+        });
         userRepository.deleteById(id);
     }
 
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private UserDto convertToDto(User user) {
         UserDto dto = new UserDto();
         dto.setId(user.getId());
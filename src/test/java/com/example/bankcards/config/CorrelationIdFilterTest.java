@@ -0,0 +1,42 @@
+package com.example.bankcards.config;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorrelationIdFilterTest {
+
+    private final CorrelationIdFilter filter = new CorrelationIdFilter();
+
+    @Test
+    void testDoFilter_PropagatesValidIncomingId() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.addHeader(CorrelationIdFilter.HEADER, "req-42");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (rq, rs) -> seen.set(MDC.get(CorrelationIdFilter.MDC_KEY)));
+
+        assertEquals("req-42", seen.get());
+        assertEquals("req-42", response.getHeader(CorrelationIdFilter.HEADER));
+        assertNull(MDC.get(CorrelationIdFilter.MDC_KEY));
+    }
+
+    @Test
+    void testDoFilter_ReplacesUnsafeIncomingId() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.addHeader(CorrelationIdFilter.HEADER, "bad id\nforged log line");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (rq, rs) -> { });
+
+        String generated = response.getHeader(CorrelationIdFilter.HEADER);
+        assertNotNull(generated);
+        assertTrue(generated.matches("[0-9a-f]{1,16}"));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.bankcards.loadtest;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Сравнение платформенных и виртуальных потоков Tomcat на блокирующем JDBC-пути (GET /cards/{id}/balance).
+// Запуск: mvn -Pload test -Dtest='*ThreadsLoadTest' [-Dload.connections=1000,5000,10000]
+@Tag("load")
+@ActiveProfiles("test")
+abstract class AbstractThreadModeLoadTest {
+
+    private static final int REQUESTS_PER_CONNECTION = 5;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    protected abstract String mode();
+
+    @Test
+    void testBalanceLookup_ThroughputAndTailLatency() throws Exception {
+        User owner = new User();
+        owner.setUsername("threads-" + mode());
+        owner.setEmail("threads-" + mode() + "@example.com");
+        owner.setPassword("not-used");
+        owner.setRole(Role.ROLE_USER);
+        owner = userRepository.save(owner);
+        Long cardId = cardRepository.save(card(owner)).getId();
+        String token = jwtService.generateToken(owner);
+
+        URI uri = URI.create("http://localhost:" + port + "/api/cards/" + cardId + "/balance");
+        for (String level : System.getProperty("load.connections", "1000,5000,10000").split(",")) {
+            run(uri, token, Integer.parseInt(level.trim()));
+        }
+    }
+
+    private void run(URI uri, String token, int connections) throws InterruptedException {
+        int total = connections * REQUESTS_PER_CONNECTION;
+        long[] latencies = new long[total];
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(connections);
+
+        // Клиент всегда на виртуальных потоках, чтобы ограничением была сторона сервера.
+        // Общий HttpClient открывает по соединению на каждый одновременный HTTP/1.1 запрос.
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .executor(clients)
+                     .build()) {
+            for (int c = 0; c < connections; c++) {
+                clients.submit(() -> {
+                    HttpRequest request = HttpRequest.newBuilder(uri)
+                            .header("Authorization", "Bearer " + token)
+                            .timeout(Duration.ofSeconds(60))
+                            .GET()
+                            .build();
+                    try {
+                        start.await();
+                        for (int i = 0; i < REQUESTS_PER_CONNECTION; i++) {
+                            long begin = System.nanoTime();
+                            try {
+                                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                                if (response.statusCode() != 200) {
+                                    errors.incrementAndGet();
+                                    continue;
+                                }
+                                latencies[recorded.getAndIncrement()] = System.nanoTime() - begin;
+                            } catch (Exception e) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                    return null;
+                });
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            assertTrue(done.await(10, TimeUnit.MINUTES), "load run did not finish in time");
+            long elapsed = System.nanoTime() - begin;
+
+            int ok = recorded.get();
+            long[] sorted = Arrays.copyOf(latencies, ok);
+            Arrays.sort(sorted);
+            System.out.printf("%-8s connections=%-6d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms errors=%d%n",
+                    mode(), connections, ok / (elapsed / 1e9),
+                    percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, errors.get());
+
+            assertTrue(ok > 0, "no successful requests at " + connections + " connections");
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private Card card(User owner) {
+        Card card = new Card();
+        card.setCardNumber("**** **** **** 2000");
+        card.setEncryptedCardNumber("threads-encrypted-" + mode());
+        card.setCardFingerprint("threads-fingerprint-" + mode());
+        card.setCardHolder("Load Test");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.valueOf(1000));
+        card.setUser(owner);
+        return card;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.bankcards.loadtest;
+
+import com.example.bankcards.dto.BulkCardSummary;
+import com.example.bankcards.entity.*;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.BulkCardService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Скорость вставки при выпуске карт и записи леджера на PostgreSQL (LoadTestDatabase); запуск: mvn -Pload test.
+// "before" — по INSERT на строку сразу при persist, как было при IDENTITY; "after" — saveAll с JDBC batch
+// по пулу последовательности (changeset 007, hibernate.jdbc.batch_size).
+@Tag("load")
+@SpringBootTest
+class BulkInsertLoadTest {
+
+    private static final int ROWS = 10_000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BulkCardService bulkCardService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        LoadTestDatabase.register(registry);
+    }
+
+    @Test
+    void testBulkCardAndLedgerInserts_BeforeAndAfter() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        String run = Long.toString(System.nanoTime());
+        User owner = saveOwner("bulk-user-" + run);
+
+        // before: flush после каждой строки — отдельный round trip на INSERT, батчинга нет
+        List<Card> rowByRowCards = newCards(owner, "before-" + run);
+        long beforeCardsStart = System.nanoTime();
+        tx.executeWithoutResult(status -> persistRowByRow(rowByRowCards));
+        long beforeCardsNanos = System.nanoTime() - beforeCardsStart;
+
+        List<Transaction> rowByRowLedger = newLedger(rowByRowCards);
+        long beforeLedgerStart = System.nanoTime();
+        tx.executeWithoutResult(status -> persistRowByRow(rowByRowLedger));
+        long beforeLedgerNanos = System.nanoTime() - beforeLedgerStart;
+
+        // after: saveAll, Hibernate отправляет INSERT пачками по batch_size
+        List<Card> cards = newCards(owner, "after-" + run);
+        long cardsStart = System.nanoTime();
+        List<Card> savedCards = tx.execute(status -> cardRepository.saveAll(cards));
+        long cardsNanos = System.nanoTime() - cardsStart;
+
+        List<Transaction> ledger = newLedger(savedCards);
+        long ledgerStart = System.nanoTime();
+        tx.execute(status -> transactionRepository.saveAll(ledger));
+        long ledgerNanos = System.nanoTime() - ledgerStart;
+
+        System.out.printf("card issuance: before %.0f rows/s, after %.0f rows/s (x%.1f)%n",
+                rowsPerSecond(beforeCardsNanos), rowsPerSecond(cardsNanos), (double) beforeCardsNanos / cardsNanos);
+        System.out.printf("ledger writes: before %.0f rows/s, after %.0f rows/s (x%.1f)%n",
+                rowsPerSecond(beforeLedgerNanos), rowsPerSecond(ledgerNanos), (double) beforeLedgerNanos / ledgerNanos);
+
+        assertEquals(ROWS, savedCards.stream().map(Card::getId).distinct().count());
+        assertEquals(ROWS, rowByRowCards.stream().map(Card::getId).distinct().count());
+    }
+
+    // Полный путь POST /cards/bulk без HTTP: разбор CSV, проверки, шифрование и batch-вставка
+    @Test
+    void testBulkCardImport() {
+        Long ownerId = saveOwner("bulk-import-user-" + System.nanoTime()).getId();
+
+        long base = ThreadLocalRandom.current().nextLong(1_000_000_000_000L);
+        String expires = LocalDate.now().plusYears(2).toString();
+        StringBuilder csv = new StringBuilder(BulkCardService.CSV_HEADER).append('\n');
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(String.format("52%014d", base + i)).append(",Bulk Import,")
+                    .append(expires).append(',').append(ownerId).append('\n');
+        }
+
+        StringWriter out = new StringWriter();
+        BulkCardSummary summary = bulkCardService.importCsv(new StringReader(csv.toString()), out);
+
+        System.out.printf("bulk card import: %d rows/s%n", summary.getRowsPerSecond());
+
+        assertEquals(ROWS, summary.getCreated(), out.toString());
+    }
+
+    private void persistRowByRow(List<?> entities) {
+        for (Object entity : entities) {
+            entityManager.persist(entity);
+            entityManager.flush();
+            // без clear каждый flush заново проверял бы все ранее сохранённые сущности
+            entityManager.clear();
+        }
+    }
+
+    private User saveOwner(String username) {
+        User owner = new User();
+        owner.setUsername(username);
+        owner.setEmail(username + "@example.com");
+        owner.setPassword("not-used");
+        owner.setRole(Role.ROLE_USER);
+        return userRepository.save(owner);
+    }
+
+    private static List<Card> newCards(User owner, String prefix) {
+        List<Card> cards = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Card card = new Card();
+            card.setCardNumber("**** **** **** " + String.format("%04d", i % 10_000));
+            card.setEncryptedCardNumber("bulk-encrypted-" + prefix + "-" + i);
+            card.setCardFingerprint("bulk-fingerprint-" + prefix + "-" + i);
+            card.setCardHolder("Bulk Test");
+            card.setExpirationDate(LocalDate.now().plusYears(2));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.ZERO);
+            card.setUser(owner);
+            cards.add(card);
+        }
+        return cards;
+    }
+
+    private static List<Transaction> newLedger(List<Card> cards) {
+        List<Transaction> ledger = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            Transaction entry = new Transaction();
+            entry.setType(TransactionType.TOP_UP);
+            entry.setAmount(BigDecimal.ONE);
+            entry.setToCard(card);
+            ledger.add(entry);
+        }
+        return ledger;
+    }
+
+    private static double rowsPerSecond(long nanos) {
+        return ROWS / (nanos / 1e9);
+    }
+}
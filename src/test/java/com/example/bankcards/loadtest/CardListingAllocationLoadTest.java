@@ -0,0 +1,106 @@
+package com.example.bankcards.loadtest;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Аллокации на страницу из 1000 карт: сущности + convertToDto против проекции в CardDto; запуск: mvn -Pload test
+@Tag("load")
+@SpringBootTest
+@ActiveProfiles("test")
+class CardListingAllocationLoadTest {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testProjectionAllocatesLessThanEntityHydration() {
+        User owner = new User();
+        owner.setUsername("listing-user");
+        owner.setEmail("listing-user@example.com");
+        owner.setPassword("not-used");
+        owner.setRole(Role.ROLE_USER);
+        User savedOwner = userRepository.save(owner);
+
+        List<Card> cards = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Card card = new Card();
+            card.setCardNumber("**** **** **** " + String.format("%04d", i));
+            card.setEncryptedCardNumber("listing-encrypted-" + i);
+            card.setCardFingerprint("listing-fingerprint-" + i);
+            card.setCardHolder("Listing Test");
+            card.setExpirationDate(LocalDate.now().plusYears(2));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.TEN);
+            card.setUser(savedOwner);
+            cards.add(card);
+        }
+        cardRepository.saveAll(cards);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        PageRequest page = PageRequest.of(0, PAGE_SIZE);
+        Long ownerId = savedOwner.getId();
+
+        Supplier<List<CardDto>> entityPath = () -> readOnly.execute(status ->
+                cardRepository.findByUserId(ownerId, page).map(c -> new CardDto(
+                        c.getId(), c.getCardNumber(), c.getCardHolder(), c.getExpirationDate(),
+                        c.getStatus(), c.getBalance(), c.getUser().getId())).getContent());
+        Supplier<List<CardDto>> projectionPath = () -> readOnly.execute(status ->
+                cardRepository.findDtosByUserId(ownerId, page).getContent());
+
+        long entityBytes = bytesPerPage(entityPath);
+        long projectionBytes = bytesPerPage(projectionPath);
+
+        System.out.printf("entity + convertToDto: %d KB/page%n", entityBytes / 1024);
+        System.out.printf("CardDto projection:    %d KB/page%n", projectionBytes / 1024);
+
+        assertEquals(PAGE_SIZE, projectionPath.get().size());
+        assertTrue(projectionBytes < entityBytes);
+    }
+
+    private long bytesPerPage(Supplier<List<CardDto>> listing) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            listing.get(); // прогрев
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            listing.get();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ROUNDS;
+    }
+}
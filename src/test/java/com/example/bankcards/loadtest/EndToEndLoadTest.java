@@ -0,0 +1,456 @@
+package com.example.bankcards.loadtest;
+
+import com.example.bankcards.dto.BulkCardSummary;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.LedgerOutboxRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtService;
+import com.example.bankcards.service.BulkCardService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Смешанная нагрузка на всё приложение поверх настоящего PostgreSQL: Liquibase накатывает db.changelog-master.yaml,
+// затем N пользователей заводятся пачками, M карт — через массовый выпуск (BulkCardService),
+// и load.concurrency клиентов гоняют login/list/balance/transfer/deposit.
+// В конце — сохранение денег: баланс каждой карты, общий итог, журнал переводов и сводки пользователей.
+// Запуск: mvn -Pload test -Dtest=EndToEndLoadTest [-Dload.users=100 -Dload.cards=400 -Dload.concurrency=64
+//         -Dload.duration=30 -Dload.mix=login=5,list=25,balance=30,transfer=30,deposit=10]
+// База — LoadTestDatabase: своя через -Dload.db.url или встроенный PostgreSQL.
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class EndToEndLoadTest {
+
+    private static final String PASSWORD = "load-password";
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(10_000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LedgerOutboxRepository outboxRepository;
+
+    @Autowired
+    private BulkCardService bulkCardService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        LoadTestDatabase.register(registry);
+        // токены выдаются один раз до прогона
+        registry.add("jwt.expiration", () -> "3600000");
+    }
+
+    @Test
+    void testMixedTraffic_LatencyAndConservation() throws Exception {
+        int users = Integer.getInteger("load.users", 100);
+        int cards = Integer.getInteger("load.cards", 400);
+        int concurrency = Integer.getInteger("load.concurrency", 64);
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration", 30));
+        TrafficMix mix = TrafficMix.parse(System.getProperty("load.mix", "login=5,list=25,balance=30,transfer=30,deposit=10"));
+        assertTrue(cards >= users * 2, "load.cards must give every user at least two cards");
+
+        Fixture fixture = seed(users, cards);
+        Map<Long, BigDecimal> initialBalances = balances(fixture.cardIds());
+        BigDecimal initialTotal = sum(initialBalances.values());
+
+        // ожидаемое изменение баланса по карте в рублях, только по запросам, получившим 200
+        Map<Long, AtomicLong> expectedDeltas = new ConcurrentHashMap<>();
+        fixture.cardIds().forEach(id -> expectedDeltas.put(id, new AtomicLong()));
+        AtomicLong transfersOk = new AtomicLong();
+        AtomicLong depositedTotal = new AtomicLong();
+        AtomicLong ambiguous = new AtomicLong();
+
+        List<Samples[]> perClient = new CopyOnWriteArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        String baseUrl = "http://localhost:" + port + "/api";
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .executor(clients)
+                     .build()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.submit(() -> {
+                    Samples[] samples = Samples.perEndpoint();
+                    perClient.add(samples);
+                    try {
+                        start.await();
+                        long deadline = System.nanoTime() + duration.toNanos();
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (System.nanoTime() < deadline) {
+                            Endpoint endpoint = mix.next(random);
+                            SeededUser user = fixture.users().get(random.nextInt(fixture.users().size()));
+                            long fromId = user.cardIds().get(random.nextInt(user.cardIds().size()));
+                            long toId = otherCard(user, fromId, random);
+                            long amount = endpoint == Endpoint.DEPOSIT ? random.nextLong(1, 101) : random.nextLong(1, 11);
+
+                            HttpRequest request = switch (endpoint) {
+                                case LOGIN -> post(baseUrl + "/auth/login", null,
+                                        "{\"username\":\"" + user.username() + "\",\"password\":\"" + PASSWORD + "\"}");
+                                case LIST -> get(baseUrl + "/cards?page=0&size=20", user.token());
+                                case BALANCE -> get(baseUrl + "/cards/" + fromId + "/balance", user.token());
+                                case TRANSFER -> post(baseUrl + "/cards/transfer", user.token(),
+                                        "{\"fromCardId\":" + fromId + ",\"toCardId\":" + toId + ",\"amount\":" + amount + "}");
+                                case DEPOSIT -> post(baseUrl + "/cards/" + fromId + "/deposit", fixture.adminToken(),
+                                        "{\"amount\":" + amount + "}");
+                            };
+
+                            long begin = System.nanoTime();
+                            int status;
+                            try {
+                                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            } catch (IOException e) {
+                                // запрос мог выполниться на сервере — такой прогон нельзя сверить точно
+                                if (endpoint == Endpoint.TRANSFER || endpoint == Endpoint.DEPOSIT) {
+                                    ambiguous.incrementAndGet();
+                                }
+                                samples[endpoint.ordinal()].recordIoError();
+                                continue;
+                            }
+                            samples[endpoint.ordinal()].record(System.nanoTime() - begin, status);
+
+                            if (status == 200 && endpoint == Endpoint.TRANSFER) {
+                                expectedDeltas.get(fromId).addAndGet(-amount);
+                                expectedDeltas.get(toId).addAndGet(amount);
+                                transfersOk.incrementAndGet();
+                            } else if (status == 200 && endpoint == Endpoint.DEPOSIT) {
+                                expectedDeltas.get(fromId).addAndGet(amount);
+                                depositedTotal.addAndGet(amount);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            assertTrue(done.await(duration.toMinutes() + 10, TimeUnit.MINUTES), "load run did not finish in time");
+        }
+
+        report(perClient, duration, concurrency, users, cards);
+
+        assertEquals(0, ambiguous.get(), "transfers or deposits with unknown outcome, balances cannot be verified");
+        awaitLedgerDrained();
+
+        Map<Long, BigDecimal> finalBalances = balances(fixture.cardIds());
+        List<String> lostUpdates = new ArrayList<>();
+        for (Long cardId : fixture.cardIds()) {
+            BigDecimal expected = initialBalances.get(cardId).add(BigDecimal.valueOf(expectedDeltas.get(cardId).get()));
+            if (expected.compareTo(finalBalances.get(cardId)) != 0) {
+                lostUpdates.add("card " + cardId + ": expected " + expected + ", actual " + finalBalances.get(cardId));
+            }
+        }
+        BigDecimal finalTotal = sum(finalBalances.values());
+        long ledgerTransfers = countLedgerTransfers(fixture.cardIds());
+        int summaryMismatches = summaryMismatches(fixture);
+
+        System.out.printf("checks: lost updates=%d total %s -> %s (deposited %d) ledger transfers=%d/%d summary mismatches=%d%n",
+                lostUpdates.size(), initialTotal, finalTotal, depositedTotal.get(),
+                ledgerTransfers, transfersOk.get(), summaryMismatches);
+
+        assertTrue(lostUpdates.isEmpty(), "lost updates: " + lostUpdates.subList(0, Math.min(10, lostUpdates.size())));
+        assertEquals(0, initialTotal.add(BigDecimal.valueOf(depositedTotal.get())).compareTo(finalTotal),
+                "money was created or destroyed");
+        assertEquals(transfersOk.get(), ledgerTransfers, "ledger does not match successful transfers");
+        assertEquals(0, summaryMismatches, "user balance summaries diverged from cards");
+    }
+
+    // Пользователи — JPA batch (batch_size 50, последовательности с allocationSize 50), карты — тем же путём,
+    // что POST /cards/bulk (BulkCardService.importCsv). Bulk выпускает карты с нулевым балансом: начальный баланс
+    // ставится одним UPDATE, сводки пересчитываются одним INSERT ... SELECT, как в changeset 010
+    private Fixture seed(int userCount, int cardCount) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        String runId = String.format("%06d", System.currentTimeMillis() % 1_000_000); // локальную базу можно переиспользовать
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+
+        long seedStart = System.nanoTime();
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            User user = new User();
+            user.setUsername("load-" + runId + "-" + i);
+            user.setEmail("load-" + runId + "-" + i + "@example.com");
+            user.setPassword(passwordHash);
+            user.setRole(Role.ROLE_USER);
+            users.add(user);
+        }
+        List<User> savedUsers = tx.execute(status -> userRepository.saveAll(users));
+        long minUserId = savedUsers.stream().mapToLong(User::getId).min().orElseThrow();
+        long maxUserId = savedUsers.stream().mapToLong(User::getId).max().orElseThrow();
+
+        String expires = LocalDate.now().plusYears(2).toString();
+        StringBuilder csv = new StringBuilder(BulkCardService.CSV_HEADER).append('\n');
+        for (int i = 0; i < cardCount; i++) {
+            csv.append(String.format("9%s%09d", runId, i)).append(",Load Test,").append(expires).append(',')
+                    .append(savedUsers.get(i % userCount).getId()).append('\n');
+        }
+        StringWriter rejected = new StringWriter();
+        BulkCardSummary imported = bulkCardService.importCsv(new StringReader(csv.toString()), rejected);
+        assertEquals(cardCount, imported.getCreated(), rejected.toString());
+
+        jdbcTemplate.update("UPDATE cards SET balance = ? WHERE user_id BETWEEN ? AND ?",
+                INITIAL_BALANCE, minUserId, maxUserId);
+        jdbcTemplate.update(
+                "INSERT INTO user_balance_summaries (user_id, total_balance, active_cards) " +
+                        "SELECT c.user_id, SUM(c.balance), COUNT(*) FROM cards c " +
+                        "WHERE c.user_id BETWEEN ? AND ? GROUP BY c.user_id " +
+                        "ON CONFLICT (user_id) DO UPDATE SET total_balance = EXCLUDED.total_balance, " +
+                        "active_cards = EXCLUDED.active_cards",
+                minUserId, maxUserId);
+        System.out.printf("seeded %d users and %d cards in %d ms (bulk import %d rows/s)%n",
+                userCount, cardCount, (System.nanoTime() - seedStart) / 1_000_000, imported.getRowsPerSecond());
+
+        List<Long> cardIds = new ArrayList<>(cardCount);
+        Map<Long, List<Long>> cardsByUser = new HashMap<>();
+        jdbcTemplate.query("SELECT id, user_id FROM cards WHERE user_id BETWEEN ? AND ? ORDER BY id", rs -> {
+            cardIds.add(rs.getLong("id"));
+            cardsByUser.computeIfAbsent(rs.getLong("user_id"), id -> new ArrayList<>()).add(rs.getLong("id"));
+        }, minUserId, maxUserId);
+        List<SeededUser> seeded = new ArrayList<>(userCount);
+        for (User user : savedUsers) {
+            seeded.add(new SeededUser(user.getId(), user.getUsername(), jwtService.generateToken(user),
+                    List.copyOf(cardsByUser.get(user.getId()))));
+        }
+        User admin = userRepository.findByUsername("admin")
+                .orElseThrow(() -> new IllegalStateException("DataInitializer did not create admin"));
+        return new Fixture(seeded, jwtService.generateToken(admin), cardIds);
+    }
+
+    private static long otherCard(SeededUser user, long cardId, ThreadLocalRandom random) {
+        List<Long> ids = user.cardIds();
+        long other = ids.get(random.nextInt(ids.size() - 1));
+        return other == cardId ? ids.get(ids.size() - 1) : other;
+    }
+
+    private static HttpRequest get(String url, String token) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    private static HttpRequest post(String url, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private Map<Long, BigDecimal> balances(List<Long> cardIds) {
+        Map<Long, BigDecimal> balances = new HashMap<>(cardIds.size());
+        long minId = Collections.min(cardIds);
+        long maxId = Collections.max(cardIds);
+        jdbcTemplate.query("SELECT id, balance FROM cards WHERE id BETWEEN ? AND ?",
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getBigDecimal("balance"));
+                },
+                minId, maxId);
+        balances.keySet().retainAll(new HashSet<>(cardIds));
+        return balances;
+    }
+
+    // Переводы попадают в transactions через outbox асинхронно — ждём, пока писатель выгребет очередь
+    private void awaitLedgerDrained() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (outboxRepository.count() > 0) {
+            assertTrue(System.nanoTime() < deadline, "ledger outbox was not drained in time");
+            Thread.sleep(200);
+        }
+    }
+
+    private long countLedgerTransfers(List<Long> cardIds) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE type = 'TRANSFER' AND from_card_id BETWEEN ? AND ?",
+                Long.class, Collections.min(cardIds), Collections.max(cardIds));
+        return count == null ? 0 : count;
+    }
+
+    private int summaryMismatches(Fixture fixture) {
+        long minUserId = fixture.users().stream().mapToLong(SeededUser::id).min().orElseThrow();
+        long maxUserId = fixture.users().stream().mapToLong(SeededUser::id).max().orElseThrow();
+        Integer mismatches = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_balance_summaries s " +
+                        "JOIN (SELECT user_id, SUM(balance) AS total FROM cards GROUP BY user_id) c ON c.user_id = s.user_id " +
+                        "WHERE s.user_id BETWEEN ? AND ? AND s.total_balance <> c.total",
+                Integer.class, minUserId, maxUserId);
+        return mismatches == null ? 0 : mismatches;
+    }
+
+    private static BigDecimal sum(Collection<BigDecimal> values) {
+        return values.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static void report(List<Samples[]> perClient, Duration duration, int concurrency, int users, int cards) {
+        System.out.printf("mixed load: users=%d cards=%d concurrency=%d duration=%ds%n",
+                users, cards, concurrency, duration.toSeconds());
+        long totalOk = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Samples merged = new Samples();
+            for (Samples[] samples : perClient) {
+                merged.merge(samples[endpoint.ordinal()]);
+            }
+            long[] sorted = merged.sortedLatencies();
+            totalOk += merged.statuses[2];
+            System.out.printf("%-8s %8.0f req/s p50=%7.2f ms p99=%7.2f ms p999=%7.2f ms " +
+                            "2xx=%d 4xx=%d 429=%d 5xx=%d io=%d%n",
+                    endpoint.name().toLowerCase(), merged.size / (double) duration.toSeconds(),
+                    percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, percentile(sorted, 0.999) / 1e6,
+                    merged.statuses[2], merged.statuses[4] - merged.throttled, merged.throttled,
+                    merged.statuses[5], merged.ioErrors);
+        }
+        System.out.printf("total    %8.0f ok req/s%n", totalOk / (double) duration.toSeconds());
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private enum Endpoint {
+        LOGIN,
+        LIST,
+        BALANCE,
+        TRANSFER,
+        DEPOSIT
+    }
+
+    // Веса эндпоинтов из load.mix; выбор — по накопленной сумме весов
+    private record TrafficMix(Endpoint[] endpoints, int[] cumulative) {
+
+        static TrafficMix parse(String spec) {
+            Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split("=");
+                weights.put(Endpoint.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+            }
+            Endpoint[] endpoints = weights.keySet().toArray(Endpoint[]::new);
+            int[] cumulative = new int[endpoints.length];
+            int total = 0;
+            for (int i = 0; i < endpoints.length; i++) {
+                total += weights.get(endpoints[i]);
+                cumulative[i] = total;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("load.mix has no positive weights: " + spec);
+            }
+            return new TrafficMix(endpoints, cumulative);
+        }
+
+        Endpoint next(ThreadLocalRandom random) {
+            int roll = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (roll < cumulative[i]) {
+                    return endpoints[i];
+                }
+            }
+            return endpoints[endpoints.length - 1];
+        }
+    }
+
+    // Замеры одного клиента по одному эндпоинту; сливаются после прогона, поэтому без синхронизации
+    private static final class Samples {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private final long[] statuses = new long[6]; // индекс — status / 100
+        private long throttled;
+        private long ioErrors;
+
+        static Samples[] perEndpoint() {
+            Samples[] samples = new Samples[Endpoint.values().length];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = new Samples();
+            }
+            return samples;
+        }
+
+        void record(long nanos, int status) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            statuses[Math.min(status / 100, 5)]++;
+            if (status == 429) {
+                throttled++;
+            }
+        }
+
+        void recordIoError() {
+            ioErrors++;
+        }
+
+        void merge(Samples other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, size + other.size);
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] += other.statuses[i];
+            }
+            throttled += other.throttled;
+            ioErrors += other.ioErrors;
+        }
+
+        long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    private record SeededUser(Long id, String username, String token, List<Long> cardIds) {
+    }
+
+    private record Fixture(List<SeededUser> users, String adminToken, List<Long> cardIds) {
+    }
+}
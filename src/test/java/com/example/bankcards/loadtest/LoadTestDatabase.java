@@ -0,0 +1,43 @@
+package com.example.bankcards.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Настоящий PostgreSQL для нагрузочных тестов: Liquibase накатывает те же changeset'ы, что и в проде.
+// Своя база: -Dload.db.url=jdbc:postgresql://localhost:5432/BankRest -Dload.db.user=... -Dload.db.password=...,
+// иначе поднимается встроенный PostgreSQL (zonky), один на JVM, и останавливается вместе с ней.
+final class LoadTestDatabase {
+
+    private static EmbeddedPostgres embeddedPostgres;
+
+    private LoadTestDatabase() {
+    }
+
+    static void register(DynamicPropertyRegistry registry) {
+        String url = System.getProperty("load.db.url");
+        if (url != null) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("load.db.user", "bankuser"));
+            registry.add("spring.datasource.password", () -> System.getProperty("load.db.password", "bankpass"));
+        } else {
+            EmbeddedPostgres postgres = embeddedPostgres();
+            registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+            registry.add("spring.datasource.username", () -> "postgres");
+            registry.add("spring.datasource.password", () -> "postgres");
+        }
+    }
+
+    private static synchronized EmbeddedPostgres embeddedPostgres() {
+        if (embeddedPostgres == null) {
+            try {
+                embeddedPostgres = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot start embedded PostgreSQL", e);
+            }
+        }
+        return embeddedPostgres;
+    }
+}
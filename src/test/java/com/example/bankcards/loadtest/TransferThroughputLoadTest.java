@@ -0,0 +1,121 @@
+package com.example.bankcards.loadtest;
+
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Запуск: mvn -Pload test
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class TransferThroughputLoadTest {
+
+    private static final int TRANSFERS = 1000;
+    private static final int BATCH_SIZE = 100;
+    private static final int CARDS = 8;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void testBatchEndpoint_ThroughputAgainstSingleTransfers() {
+        User owner = new User();
+        owner.setUsername("load-user");
+        owner.setEmail("load-user@example.com");
+        owner.setPassword("not-used");
+        owner.setRole(Role.ROLE_USER);
+        owner = userRepository.save(owner);
+
+        List<Long> cardIds = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) {
+            cardIds.add(cardRepository.save(card(owner, i)).getId());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwtService.generateToken(owner));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // Случайные пары и суммы: у пачки ненулевые итоговые изменения, иначе batch мерил бы пустые UPDATE
+        Random random = new Random(42);
+        List<TransferRequest> transfers = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            int from = random.nextInt(CARDS);
+            int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+            transfers.add(new TransferRequest(
+                    cardIds.get(from), cardIds.get(to), BigDecimal.valueOf(1 + random.nextInt(50))));
+        }
+
+        long singleStart = System.nanoTime();
+        for (TransferRequest transfer : transfers) {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    "/cards/transfer", HttpMethod.POST, new HttpEntity<>(transfer, headers), String.class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+        }
+        long singleNanos = System.nanoTime() - singleStart;
+
+        long batchStart = System.nanoTime();
+        for (int from = 0; from < TRANSFERS; from += BATCH_SIZE) {
+            BatchTransferRequest batch = new BatchTransferRequest();
+            batch.setTransfers(transfers.subList(from, Math.min(from + BATCH_SIZE, TRANSFERS)));
+            ResponseEntity<BatchTransferResponse> response = restTemplate.exchange(
+                    "/cards/transfers/batch", HttpMethod.POST, new HttpEntity<>(batch, headers),
+                    BatchTransferResponse.class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals(0, response.getBody().getFailed());
+        }
+        long batchNanos = System.nanoTime() - batchStart;
+
+        System.out.printf("single /cards/transfer: %.0f transfers/s%n", TRANSFERS / (singleNanos / 1e9));
+        System.out.printf("batch  /cards/transfers/batch (%d per call): %.0f transfers/s%n",
+                BATCH_SIZE, TRANSFERS / (batchNanos / 1e9));
+
+        BigDecimal total = cardRepository.findAllById(cardIds).stream()
+                .map(Card::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, BigDecimal.valueOf(1_000_000L * CARDS).compareTo(total));
+    }
+
+    private Card card(User owner, int index) {
+        Card card = new Card();
+        card.setCardNumber("**** **** **** 100" + index);
+        card.setEncryptedCardNumber("load-encrypted-" + index);
+        card.setCardFingerprint("load-fingerprint-" + index);
+        card.setCardHolder("Load Test");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.valueOf(1_000_000));
+        card.setUser(owner);
+        return card;
+    }
+}
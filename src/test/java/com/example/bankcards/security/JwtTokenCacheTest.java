@@ -0,0 +1,136 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenCacheTest {
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setRole(Role.ROLE_USER);
+        return user;
+    }
+
+    private Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    void testGet_HitAfterPut() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+        cache.put("token", user("user"), inOneHour());
+
+        JwtTokenCache.CachedAuthentication cached = cache.get("token");
+
+        assertNotNull(cached);
+        assertEquals("user", cached.principal().getUsername());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    void testGet_ExpiredEntryIsEvicted() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+        cache.put("token", user("user"), new Date(System.currentTimeMillis() - 1));
+
+        assertNull(cache.get("token"));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInvalidateUser_RemovesOnlyThatUsersTokens() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+        cache.put("t1", user("alice"), inOneHour());
+        cache.put("t2", user("alice"), inOneHour());
+        cache.put("t3", user("bob"), inOneHour());
+
+        cache.invalidateUser("alice");
+
+        assertNull(cache.get("t1"));
+        assertNull(cache.get("t2"));
+        assertNotNull(cache.get("t3"));
+    }
+
+    @Test
+    void testPut_RespectsMaxSize() {
+        JwtTokenCache cache = new JwtTokenCache(2);
+        cache.put("t1", user("a"), new Date(System.currentTimeMillis() + 1_000));
+        cache.put("t2", user("b"), inOneHour());
+        cache.put("t3", user("c"), inOneHour());
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("t1"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testPut_EvictsExpiredBeforeLiveEntries() {
+        JwtTokenCache cache = new JwtTokenCache(2);
+        cache.put("t1", user("a"), new Date(System.currentTimeMillis() - 1));
+        cache.put("t2", user("b"), inOneHour());
+        cache.put("t3", user("c"), inOneHour());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("t2"));
+        assertNotNull(cache.get("t3"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testPut_ReplacingTokenDoesNotTakeExtraSlot() {
+        JwtTokenCache cache = new JwtTokenCache(2);
+        cache.put("t1", user("a"), inOneHour());
+        cache.put("t1", user("a"), inOneHour());
+        cache.put("t2", user("b"), inOneHour());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("t1"));
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    void testPut_StaleGenerationIsNotCached() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+        ValidatedToken validated = new ValidatedToken("alice", "jti", inOneHour(), new Date(), Map.of());
+        long generation = cache.generation("alice");
+
+        // смена роли закоммичена, пока фильтр грузил UserDetails
+        cache.invalidateUser("alice");
+        cache.put("t1", user("alice"), validated, generation);
+
+        assertNull(cache.get("t1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testPut_AfterInvalidateWithFreshGenerationIsCached() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+        ValidatedToken validated = new ValidatedToken("alice", "jti", inOneHour(), new Date(), Map.of());
+        cache.invalidateUser("alice");
+
+        cache.put("t1", user("alice"), validated, cache.generation("alice"));
+
+        assertNotNull(cache.get("t1"));
+    }
+
+    @Test
+    void testInvalidateUser_IndexDropsEvictedTokens() {
+        JwtTokenCache cache = new JwtTokenCache(1);
+        cache.put("t1", user("alice"), inOneHour());
+        cache.put("t2", user("bob"), inOneHour());
+
+        cache.invalidateUser("alice");
+
+        assertNotNull(cache.get("t2"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    private static final long TTL = 900_000;
+    private static final long SYNC_OVERLAP = 60_000;
+
+    @Mock
+    private TokenRevocationRepository repository;
+
+    private TokenRevocationService service() {
+        return new TokenRevocationService(repository, TTL, 1000, SYNC_OVERLAP);
+    }
+
+    @Test
+    void testRevokeToken_OnlyThatTokenIsRejected() {
+        TokenRevocationService service = service();
+        long now = System.currentTimeMillis();
+
+        service.revokeToken("jti-1", now + TTL);
+
+        assertTrue(service.isRevoked("alice", "jti-1", now));
+        assertFalse(service.isRevoked("alice", "jti-2", now));
+        verify(repository).revokeToken(eq("jti-1"), any(), any());
+    }
+
+    @Test
+    void testRevokeUser_RejectsTokensIssuedBefore() {
+        TokenRevocationService service = service();
+        long issuedBefore = System.currentTimeMillis() - 1_000;
+
+        service.revokeUser("alice");
+
+        assertTrue(service.isRevoked("alice", "jti-1", issuedBefore));
+        assertFalse(service.isRevoked("bob", "jti-1", issuedBefore));
+        assertFalse(service.isRevoked("alice", "jti-1", System.currentTimeMillis() + 1_000));
+    }
+
+    @Test
+    void testSync_RebuildsFromDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        when(repository.findActive(any())).thenReturn(List.of(
+                new TokenRevocationRepository.Revocation("jti-db", null, now, now.plusMinutes(10)),
+                new TokenRevocationRepository.Revocation(null, "carol", now, now.plusMinutes(15))));
+
+        TokenRevocationService service = service();
+        service.load();
+
+        assertTrue(service.isRevoked("dave", "jti-db", 0));
+        assertTrue(service.isRevoked("carol", null, System.currentTimeMillis() - 60_000));
+        assertEquals(2, service.size());
+    }
+
+    // Запись другого узла закоммичена после прошлой догрузки, но revoked_at у неё раньше — окно её всё равно захватывает
+    @Test
+    void testSync_RereadsOverlapWindowForLateCommits() {
+        when(repository.findActive(any())).thenReturn(List.of());
+        TokenRevocationService service = service();
+        LocalDateTime beforeLoad = LocalDateTime.now();
+        service.load();
+        LocalDateTime afterLoad = LocalDateTime.now();
+
+        LocalDateTime revokedAt = beforeLoad.minusSeconds(5);
+        when(repository.findActiveRevokedSince(any(), any())).thenReturn(List.of(
+                new TokenRevocationRepository.Revocation("jti-late", null, revokedAt, revokedAt.plusMinutes(10))));
+        service.sync();
+
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).findActiveRevokedSince(since.capture(), any());
+        assertFalse(since.getValue().isBefore(beforeLoad.minusNanos(SYNC_OVERLAP * 1_000_000)));
+        assertFalse(since.getValue().isAfter(afterLoad.minusNanos(SYNC_OVERLAP * 1_000_000)));
+        assertFalse(since.getValue().isAfter(revokedAt));
+        assertTrue(service.isRevoked("alice", "jti-late", 0));
+    }
+
+    @Test
+    void testSync_RereadRowsAreIdempotent() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TokenRevocationRepository.Revocation> rows = List.of(
+                new TokenRevocationRepository.Revocation("jti-db", null, now, now.plusMinutes(10)),
+                new TokenRevocationRepository.Revocation(null, "carol", now, now.plusMinutes(15)));
+        when(repository.findActive(any())).thenReturn(rows);
+        when(repository.findActiveRevokedSince(any(), any())).thenReturn(rows);
+
+        TokenRevocationService service = service();
+        service.load();
+        service.sync();
+        service.sync();
+
+        assertEquals(2, service.size());
+    }
+
+    @Test
+    void testRevokeUser_AppliedOnlyAfterCommit() {
+        TokenRevocationService service = service();
+        long issuedBefore = System.currentTimeMillis() - 1_000;
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.revokeUser("alice");
+            assertFalse(service.isRevoked("alice", "jti-1", issuedBefore));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(service.isRevoked("alice", "jti-1", issuedBefore));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testRevokeUser_RolledBackIsNotApplied() {
+        TokenRevocationService service = service();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.revokeUser("alice");
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(service.isRevoked("alice", "jti-1", System.currentTimeMillis() - 1_000));
+    }
+
+    @Test
+    void testBloomFilter_NoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("token-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("token-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
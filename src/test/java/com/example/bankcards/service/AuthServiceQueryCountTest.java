@@ -0,0 +1,76 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AuthRequest;
+import com.example.bankcards.dto.JwtResponse;
+import com.example.bankcards.entity.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Число обращений к БД через Hibernate на логин и регистрацию (refresh-токен пишется отдельным JDBC insert)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class AuthServiceQueryCountTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private AuthRequest request(String username, String password) {
+        AuthRequest request = new AuthRequest();
+        request.setUsername(username);
+        request.setPassword(password);
+        return request;
+    }
+
+    @Test
+    void testAuthenticate_LoadsUserOnce() {
+        userService.createUser("query-count-login", "secret123", "query-count-login@example.com", Role.ROLE_USER);
+        statistics.clear();
+
+        JwtResponse response = authService.authenticate(request("query-count-login", "secret123"));
+
+        assertNotNull(response.getToken());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testRegister_NoPreCheckSelects() {
+        statistics.clear();
+
+        authService.register(request("query-count-register", "secret123"));
+
+        assertEquals(0, statistics.getQueryExecutionCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    void testRegister_DuplicateUsernameIsConflict() {
+        authService.register(request("query-count-duplicate", "secret123"));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> authService.register(request("query-count-duplicate", "secret123")));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BalanceSummaryDto;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Сводка на H2: ведётся вместе с операциями над картами и чинится сверкой
+@SpringBootTest
+@ActiveProfiles("test")
+class BalanceSummaryMaintenanceTest {
+
+    private static final AtomicLong CARD_NUMBERS = new AtomicLong(4_100_000_000_000_000L);
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private BalanceSummaryService summaryService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testSummaryFollowsCardLifecycle() {
+        Long userId = user("summary-lifecycle").getId();
+
+        CardDto card = cardService.createCard(cardRequest(userId));
+        assertSummary(userId, 0, 1);
+
+        cardService.depositToCard(card.getId(), BigDecimal.valueOf(100));
+        assertSummary(userId, 100, 1);
+
+        cardService.blockCard(card.getId(), userId);
+        assertSummary(userId, 100, 0);
+
+        cardService.deleteCard(card.getId());
+        assertSummary(userId, 0, 0);
+    }
+
+    @Test
+    void testReconcile_RepairsDriftedSummary() {
+        Long userId = user("summary-drift").getId();
+        CardDto card = cardService.createCard(cardRequest(userId));
+        cardService.depositToCard(card.getId(), BigDecimal.valueOf(40));
+        jdbcTemplate.update(
+                "UPDATE user_balance_summaries SET total_balance = 999, active_cards = 5 WHERE user_id = ?", userId);
+        long mismatchesBefore = summaryService.getMismatchCount();
+
+        summaryService.reconcile();
+
+        assertSummary(userId, 40, 1);
+        assertTrue(summaryService.getMismatchCount() > mismatchesBefore);
+    }
+
+    private User user(String prefix) {
+        String username = prefix + "-" + System.nanoTime();
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("not-used");
+        user.setRole(Role.ROLE_USER);
+        return userRepository.save(user);
+    }
+
+    private CreateCardRequest cardRequest(Long userId) {
+        CreateCardRequest request = new CreateCardRequest();
+        request.setCardNumber(Long.toString(CARD_NUMBERS.incrementAndGet()));
+        request.setCardHolder("Summary Test");
+        request.setExpirationDate(LocalDate.now().plusYears(2));
+        request.setUserId(userId);
+        return request;
+    }
+
+    private void assertSummary(Long userId, long balance, int activeCards) {
+        BalanceSummaryDto summary = summaryService.getSummary(userId);
+        assertEquals(0, BigDecimal.valueOf(balance).compareTo(summary.getTotalBalance()), summary.toString());
+        assertEquals(activeCards, summary.getActiveCards());
+    }
+}
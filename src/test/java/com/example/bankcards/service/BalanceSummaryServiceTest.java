@@ -0,0 +1,96 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.UserBalanceSummary;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserBalanceSummaryRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceSummaryServiceTest {
+
+    @Mock
+    private UserBalanceSummaryRepository summaryRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceSummaryService summaryService;
+
+    @BeforeEach
+    void setUp() {
+        summaryService = new BalanceSummaryService(summaryRepository, userRepository, cardRepository,
+                new TransactionTemplate(transactionManager));
+        when(userRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L));
+        when(summaryRepository.findAllById(List.of(1L))).thenReturn(List.of(summary(100, 1)));
+    }
+
+    private UserBalanceSummary summary(long balance, int active) {
+        UserBalanceSummary summary = new UserBalanceSummary();
+        summary.setUserId(1L);
+        summary.setTotalBalance(BigDecimal.valueOf(balance));
+        summary.setActiveCards(active);
+        return summary;
+    }
+
+    private List<Object[]> cards(long balance, long active) {
+        return List.<Object[]>of(new Object[]{1L, BigDecimal.valueOf(balance), active});
+    }
+
+    // Пополнение успело изменить карту, но ещё не сводку: под блокировками расхождения уже нет
+    @Test
+    void testReconcile_InFlightChangeIsNotAMismatch() {
+        when(summaryRepository.aggregateCardsByUser(List.of(1L))).thenReturn(cards(150, 1));
+        when(summaryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(summary(150, 1)));
+
+        summaryService.reconcile();
+
+        verify(summaryRepository, never()).recompute(any());
+        assertEquals(0, summaryService.getMismatchCount());
+    }
+
+    @Test
+    void testReconcile_RecomputesUnderLocks() {
+        when(summaryRepository.aggregateCardsByUser(List.of(1L))).thenReturn(cards(150, 1));
+        when(summaryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(summary(100, 1)));
+
+        summaryService.reconcile();
+
+        InOrder order = inOrder(cardRepository, summaryRepository);
+        order.verify(cardRepository).lockIdsByUserId(1L);
+        order.verify(summaryRepository).findByIdForUpdate(1L);
+        order.verify(summaryRepository).recompute(1L);
+        assertEquals(1, summaryService.getMismatchCount());
+    }
+
+    @Test
+    void testReconcile_ConsistentSummaryTakesNoLocks() {
+        when(summaryRepository.aggregateCardsByUser(List.of(1L))).thenReturn(cards(100, 1));
+
+        summaryService.reconcile();
+
+        verifyNoInteractions(cardRepository);
+        verify(summaryRepository, never()).findByIdForUpdate(any());
+    }
+}
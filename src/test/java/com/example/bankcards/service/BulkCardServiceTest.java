@@ -0,0 +1,208 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardBatchRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkCardServiceTest {
+
+    private static final String EXPIRES = LocalDate.now().plusYears(3).toString();
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardBatchRepository cardBatchRepository;
+
+    @Mock
+    private BalanceSummaryService balanceSummaryService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CardFingerprintService fingerprintService;
+    private BulkCardService bulkCardService;
+
+    @BeforeEach
+    void setUp() {
+        fingerprintService = new CardFingerprintService("test-fingerprint-key");
+        bulkCardService = service(2);
+    }
+
+    private BulkCardService service(int chunkSize) {
+        return new BulkCardService(userRepository, cardRepository, cardBatchRepository,
+                new EncryptionService(), fingerprintService, balanceSummaryService, transactionManager,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper().findAndRegisterModules(), chunkSize);
+    }
+
+    private static String csv(String... rows) {
+        StringBuilder csv = new StringBuilder("userId,cardNumber,cardHolder,expirationDate\n");
+        for (String row : rows) {
+            csv.append(row).append(',').append(EXPIRES).append('\n');
+        }
+        return csv.toString();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testImportCsv_InsertsValidRowsAndStreamsErrors() {
+        when(userRepository.findExistingIds(any())).thenReturn(Set.of(1L));
+        when(cardRepository.findExistingFingerprints(any()))
+                .thenReturn(Set.of(fingerprintService.fingerprint("4000000000000002")));
+
+        String csv = "userId,cardNumber,cardHolder,expirationDate\n"
+                + "1,4000000000000001,\"Doe, John\"," + EXPIRES + "\n"
+                + "2,4000000000000003,Jane," + EXPIRES + "\n"
+                + "1,4000000000000002,John," + EXPIRES + "\n"
+                + "1,12,John," + EXPIRES + "\n"
+                + "1,4000000000000004,John,not-a-date\n";
+        StringWriter out = new StringWriter();
+
+        var summary = bulkCardService.importCsv(new StringReader(csv), out);
+
+        assertEquals(5, summary.getTotal());
+        assertEquals(1, summary.getCreated());
+        assertEquals(4, summary.getFailed());
+
+        List<String> lines = out.toString().lines().toList();
+        assertEquals(5, lines.size());
+        assertTrue(lines.contains("{\"index\":1,\"error\":\"User not found\"}"));
+        assertTrue(lines.contains("{\"index\":2,\"error\":\"Card number already exists\"}"));
+        assertTrue(lines.contains("{\"index\":3,\"error\":\"cardNumber: Card number must be 16 digits\"}"));
+        assertTrue(lines.contains("{\"index\":4,\"error\":\"expirationDate: must be an ISO date (yyyy-MM-dd)\"}"));
+        assertTrue(lines.get(4).startsWith("{\"total\":5,\"created\":1,\"failed\":4"));
+        verify(cardBatchRepository).insertCards(argThat(cards -> cards.size() == 1
+                && cards.get(0).cardHolder().equals("Doe, John")
+                && cards.get(0).maskedNumber().equals("**** **** **** 0001")));
+
+        ArgumentCaptor<SortedMap<Long, Integer>> byUser = ArgumentCaptor.forClass(SortedMap.class);
+        verify(balanceSummaryService).onCardsCreated(byUser.capture());
+        assertEquals(Map.of(1L, 1), byUser.getValue());
+    }
+
+    @Test
+    void testImportJson_RejectsDuplicatesInsideUploadAndInvalidRows() {
+        when(userRepository.findExistingIds(any())).thenReturn(Set.of(1L));
+        when(cardRepository.findExistingFingerprints(any())).thenReturn(Set.of());
+
+        String json = "["
+                + "{\"cardNumber\":\"4000000000000001\",\"cardHolder\":\"A\",\"expirationDate\":\"" + EXPIRES + "\",\"userId\":1},"
+                + "{\"cardNumber\":\"4000000000000001\",\"cardHolder\":\"B\",\"expirationDate\":\"" + EXPIRES + "\",\"userId\":1},"
+                + "{\"cardNumber\":\"4000000000000009\",\"cardHolder\":\"\",\"expirationDate\":\"" + EXPIRES + "\",\"userId\":1}"
+                + "]";
+        StringWriter out = new StringWriter();
+
+        var summary = bulkCardService.importJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), out);
+
+        assertEquals(3, summary.getTotal());
+        assertEquals(1, summary.getCreated());
+        List<String> lines = out.toString().lines().toList();
+        assertEquals("{\"index\":1,\"error\":\"Duplicate card number in upload\"}", lines.get(0));
+        assertTrue(lines.get(1).startsWith("{\"index\":2,\"error\":\"cardHolder: "));
+    }
+
+    @Test
+    void testImportCsv_CardHolderLongerThanColumnIsRejected() {
+        StringWriter out = new StringWriter();
+
+        var summary = bulkCardService.importCsv(new StringReader(csv("1,4000000000000001," + "A".repeat(256))), out);
+
+        assertEquals(0, summary.getCreated());
+        assertTrue(out.toString().startsWith("{\"index\":0,\"error\":\"cardHolder: size must be between"));
+        verifyNoInteractions(cardBatchRepository);
+    }
+
+    // Ограничение базы отвергло пачку: делим её, пока не найдём виновную строку, остальные вставляются
+    @Test
+    void testImportCsv_DatabaseRejectionIsNarrowedToFailingRow() {
+        when(userRepository.findExistingIds(any())).thenReturn(Set.of(1L));
+        when(cardRepository.findExistingFingerprints(any())).thenReturn(Set.of());
+        List<String> inserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<CardBatchRepository.NewCard> cards = invocation.getArgument(0);
+            if (cards.stream().anyMatch(card -> card.cardHolder().equals("Bad"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            cards.forEach(card -> inserted.add(card.cardHolder()));
+            return null;
+        }).when(cardBatchRepository).insertCards(anyList());
+        StringWriter out = new StringWriter();
+
+        var summary = service(8).importCsv(new StringReader(csv(
+                "1,4000000000000001,A", "1,4000000000000002,B",
+                "1,4000000000000003,Bad", "1,4000000000000004,C")), out);
+
+        assertEquals(3, summary.getCreated());
+        assertEquals(List.of("A", "B", "C"), inserted);
+        List<String> lines = out.toString().lines().toList();
+        assertEquals("{\"index\":2,\"error\":\"Rejected by database\"}", lines.get(0));
+        assertTrue(lines.get(1).startsWith("{\"total\":4,\"created\":3,\"failed\":1"));
+    }
+
+    // Повторный DuplicateKeyException после перепроверки: отклоняется только строка, которую увёл другой запрос
+    @Test
+    void testImportCsv_RepeatedDuplicateKeyIsNarrowedToRacingRow() {
+        when(userRepository.findExistingIds(any())).thenReturn(Set.of(1L));
+        when(cardRepository.findExistingFingerprints(any())).thenReturn(Set.of());
+        String racing = fingerprintService.fingerprint("4000000000000002");
+        List<String> inserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<CardBatchRepository.NewCard> cards = invocation.getArgument(0);
+            if (cards.stream().anyMatch(card -> card.fingerprint().equals(racing))) {
+                throw new DuplicateKeyException("ux_cards_card_fingerprint");
+            }
+            cards.forEach(card -> inserted.add(card.cardHolder()));
+            return null;
+        }).when(cardBatchRepository).insertCards(anyList());
+        StringWriter out = new StringWriter();
+
+        var summary = service(8).importCsv(new StringReader(csv(
+                "1,4000000000000001,A", "1,4000000000000002,B", "1,4000000000000003,C")), out);
+
+        assertEquals(2, summary.getCreated());
+        assertEquals(List.of("A", "C"), inserted);
+        assertTrue(out.toString().startsWith("{\"index\":1,\"error\":\"Card number already exists\"}"));
+        verify(cardRepository, times(2)).findExistingFingerprints(any());
+    }
+
+    @Test
+    void testImportCsv_MissingColumnIsRejected() {
+        StringWriter out = new StringWriter();
+
+        assertThrows(ResponseStatusException.class,
+                () -> bulkCardService.importCsv(new StringReader("cardNumber,userId\n"), out));
+        verifyNoInteractions(cardBatchRepository);
+    }
+}
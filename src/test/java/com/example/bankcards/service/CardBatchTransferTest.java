@@ -0,0 +1,165 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// POST /cards/transfers/batch на H2: откат всей пачки, результаты по элементам, проверка владельца
+@SpringBootTest
+@ActiveProfiles("test")
+class CardBatchTransferTest {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long ownerId;
+    private Long cardA;
+    private Long cardB;
+    private Long foreignCard;
+
+    @BeforeEach
+    void setUp() {
+        User owner = user("batch-owner");
+        ownerId = owner.getId();
+        cardA = card(owner, 100);
+        cardB = card(owner, 0);
+        foreignCard = card(user("batch-stranger"), 0);
+    }
+
+    @Test
+    void testAllOrNothing_AppliesTransfersInOrder() {
+        BatchTransferResponse response = cardService.transferBatch(ownerId, batch(BatchTransferRequest.Mode.ALL_OR_NOTHING,
+                transfer(cardA, cardB, 100), transfer(cardB, cardA, 30)));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(0, response.getFailed());
+        assertBalance(cardA, 30);
+        assertBalance(cardB, 70);
+    }
+
+    // По отдельности второй перевод отклонился бы, поэтому нулевой итог пачки не спасает
+    @Test
+    void testAllOrNothing_OverdraftHiddenByNettingIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferBatch(ownerId, batch(BatchTransferRequest.Mode.ALL_OR_NOTHING,
+                        transfer(cardB, cardA, 100), transfer(cardA, cardB, 100))));
+
+        assertTrue(e.getMessage().startsWith("Transfer 0: insufficient balance"));
+        assertBalance(cardA, 100);
+        assertBalance(cardB, 0);
+    }
+
+    @Test
+    void testAllOrNothing_FailingItemRollsBackEarlierItems() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferBatch(ownerId, batch(BatchTransferRequest.Mode.ALL_OR_NOTHING,
+                        transfer(cardA, cardB, 60), transfer(cardA, cardB, 60))));
+
+        assertBalance(cardA, 100);
+        assertBalance(cardB, 0);
+    }
+
+    @Test
+    void testAllOrNothing_ForeignCardIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferBatch(ownerId, batch(BatchTransferRequest.Mode.ALL_OR_NOTHING,
+                        transfer(cardA, cardB, 10), transfer(cardA, foreignCard, 10))));
+
+        assertBalance(cardA, 100);
+        assertBalance(foreignCard, 0);
+    }
+
+    @Test
+    void testAllOrNothing_SelfTransferIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferBatch(ownerId, batch(BatchTransferRequest.Mode.ALL_OR_NOTHING,
+                        transfer(cardA, cardA, 10))));
+
+        assertBalance(cardA, 100);
+    }
+
+    @Test
+    void testBestEffort_ReportsEveryItem() {
+        BatchTransferResponse response = cardService.transferBatch(ownerId, batch(BatchTransferRequest.Mode.BEST_EFFORT,
+                transfer(cardA, cardB, 60),
+                transfer(cardA, cardB, 60),
+                transfer(cardA, foreignCard, 1),
+                transfer(cardA, cardA, 1)));
+
+        assertEquals(1, response.getSucceeded());
+        assertEquals(3, response.getFailed());
+        assertTrue(response.getResults().get(0).isSuccess());
+        assertEquals("Insufficient balance", response.getResults().get(1).getError());
+        assertEquals("Target card not found or not yours", response.getResults().get(2).getError());
+        assertEquals("Source and target card must differ", response.getResults().get(3).getError());
+        assertBalance(cardA, 40);
+        assertBalance(cardB, 60);
+        assertBalance(foreignCard, 0);
+    }
+
+    private User user(String prefix) {
+        String username = prefix + "-" + SEQUENCE.incrementAndGet();
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("not-used");
+        user.setRole(Role.ROLE_USER);
+        return userRepository.save(user);
+    }
+
+    private Long card(User owner, long balance) {
+        int n = SEQUENCE.incrementAndGet();
+        Card card = new Card();
+        card.setCardNumber("**** **** **** " + String.format("%04d", n % 10_000));
+        card.setEncryptedCardNumber("batch-encrypted-" + n);
+        card.setCardFingerprint("batch-fingerprint-" + n);
+        card.setCardHolder("Batch Test");
+        card.setExpirationDate(LocalDate.now().plusYears(2));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.valueOf(balance));
+        card.setUser(owner);
+        return cardRepository.save(card).getId();
+    }
+
+    private static TransferRequest transfer(Long from, Long to, long amount) {
+        return new TransferRequest(from, to, BigDecimal.valueOf(amount));
+    }
+
+    private static BatchTransferRequest batch(BatchTransferRequest.Mode mode, TransferRequest... transfers) {
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setMode(mode);
+        request.setTransfers(List.of(transfers));
+        return request;
+    }
+
+    private void assertBalance(Long cardId, long expected) {
+        BigDecimal balance = cardRepository.findById(cardId).orElseThrow().getBalance();
+        assertEquals(0, BigDecimal.valueOf(expected).compareTo(balance), "card " + cardId + ": " + balance);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Аспект на минимальном контексте: прокси @Transactional + @CardOperation, как у CardService
+@SpringJUnitConfig(CardOperationMetricsTest.Config.class)
+class CardOperationMetricsTest {
+
+    @Autowired
+    private Operations operations;
+
+    @Autowired
+    private SimpleMeterRegistry registry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        registry.clear();
+        reset(transactionManager);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    private long count(String operation, String outcome) {
+        Timer timer = registry.find("bank.card.operation")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    @Test
+    void testRecord_TagsOutcomeByException() {
+        assertEquals("ok", operations.deposit("ok"));
+        assertThrows(IllegalArgumentException.class,
+                () -> operations.deposit(new IllegalArgumentException("Card not found")));
+        assertThrows(AccessDeniedException.class, () -> operations.deposit(new AccessDeniedException("denied")));
+        assertThrows(LedgerBackpressureException.class,
+                () -> operations.deposit(new LedgerBackpressureException("full")));
+        assertThrows(IllegalStateException.class, () -> operations.deposit(new IllegalStateException("boom")));
+
+        assertEquals(1, count("deposit", "success"));
+        assertEquals(2, count("deposit", "rejected"));
+        assertEquals(1, count("deposit", "backpressure"));
+        assertEquals(1, count("deposit", "error"));
+    }
+
+    // Аспект снаружи транзакции: коммит входит в замер, а его ошибка — не success
+    @Test
+    void testRecord_CommitIsInsideMeasurement() {
+        doThrow(new TransactionSystemException("commit failed")).when(transactionManager).commit(any());
+
+        assertThrows(TransactionSystemException.class, () -> operations.block());
+
+        verify(transactionManager).commit(any());
+        assertEquals(0, count("block", "success"));
+        assertEquals(1, count("block", "error"));
+    }
+
+    @Test
+    void testRecord_ReusesTimerPerOperationAndOutcome() {
+        operations.block();
+        operations.block();
+
+        assertEquals(2, count("block", "success"));
+        assertEquals(0, count("deposit", "success"));
+    }
+
+    @Test
+    void testTimer_CachedPerOperationAndOutcome() {
+        CardOperationMetrics metrics = new CardOperationMetrics(new SimpleMeterRegistry());
+
+        assertSame(metrics.timer("block", "success"), metrics.timer("block", "success"));
+        assertNotSame(metrics.timer("block", "success"), metrics.timer("block", "error"));
+    }
+
+    static class Operations {
+
+        @CardOperation("deposit")
+        public String deposit(Object outcome) {
+            if (outcome instanceof RuntimeException e) {
+                throw e;
+            }
+            return (String) outcome;
+        }
+
+        @Transactional
+        @CardOperation("block")
+        public void block() {
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    @EnableTransactionManagement(proxyTargetClass = true)
+    static class Config {
+
+        @Bean
+        SimpleMeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        CardOperationMetrics cardOperationMetrics(MeterRegistry registry) {
+            return new CardOperationMetrics(registry);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return mock(PlatformTransactionManager.class);
+        }
+
+        @Bean
+        Operations operations() {
+            return new Operations();
+        }
+    }
+}
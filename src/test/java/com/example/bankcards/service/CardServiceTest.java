@@ -21,6 +21,9 @@ import org.springframework.security.access.AccessDeniedException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,9 +43,37 @@ class CardServiceTest {
     @Mock
     private EncryptionService encryptionService;
 
+    @Mock
+    private CardFingerprintService fingerprintService;
+
+    @Mock
+    private TransferEngine transferEngine;
+
+    @Mock
+    private BalanceSummaryService balanceSummaryService;
+
+    @Mock
+    private LedgerWriter ledgerWriter;
+
     @InjectMocks
     private CardService cardService;
 
+    private void givenLockedCards(Card fromCard, Card toCard) {
+        when(transferEngine.withLockedCards(eq(fromCard.getId()), eq(toCard.getId()), any()))
+                .thenAnswer(inv -> inv.<BiFunction<Card, Card, Object>>getArgument(2).apply(fromCard, toCard));
+    }
+
+    private void givenAtomicMode() {
+        when(transferEngine.getMode()).thenReturn(TransferEngine.Mode.ATOMIC);
+        when(transferEngine.inTransaction(any()))
+                .thenAnswer(inv -> inv.<Supplier<Object>>getArgument(0).get());
+    }
+
+    private void givenLockedCard(Card card) {
+        when(transferEngine.withLockedCard(eq(card.getId()), any()))
+                .thenAnswer(inv -> inv.<Function<Card, Object>>getArgument(1).apply(card));
+    }
+
     @Test
     void testCreateCard_Success() {
         User user = new User();
@@ -55,8 +86,9 @@ class CardServiceTest {
         request.setExpirationDate(LocalDate.now().plusYears(2));
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(fingerprintService.fingerprint("1234567812345678")).thenReturn("fingerprint");
+        when(cardRepository.existsByCardFingerprint("fingerprint")).thenReturn(false);
         when(encryptionService.encrypt("1234567812345678")).thenReturn("encrypted");
-        when(cardRepository.existsByEncryptedCardNumber("encrypted")).thenReturn(false);
 
         Card savedCard = new Card();
         savedCard.setId(1L);
@@ -94,10 +126,11 @@ class CardServiceTest {
         request.setCardNumber("1234567812345678");
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(encryptionService.encrypt("1234567812345678")).thenReturn("encrypted");
-        when(cardRepository.existsByEncryptedCardNumber("encrypted")).thenReturn(true);
+        when(fingerprintService.fingerprint("1234567812345678")).thenReturn("fingerprint");
+        when(cardRepository.existsByCardFingerprint("fingerprint")).thenReturn(true);
 
         assertThrows(IllegalArgumentException.class, () -> cardService.createCard(request));
+        verify(encryptionService, never()).encrypt(anyString());
     }
 
     @Test
@@ -111,7 +144,7 @@ class CardServiceTest {
         card.setStatus(CardStatus.ACTIVE);
         card.setUser(user);
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        givenLockedCard(card);
         when(cardRepository.save(any(Card.class))).thenAnswer(inv -> inv.getArgument(0));
 
         CardDto result = cardService.depositToCard(1L, BigDecimal.valueOf(50));
@@ -130,7 +163,7 @@ class CardServiceTest {
         cardBlocked.setStatus(CardStatus.BLOCKED);
         cardBlocked.setUser(user);
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(cardBlocked));
+        givenLockedCard(cardBlocked);
         assertThrows(IllegalArgumentException.class, () -> cardService.depositToCard(1L, BigDecimal.valueOf(50)));
 
         Card cardExpired = new Card();
@@ -139,7 +172,7 @@ class CardServiceTest {
         cardExpired.setStatus(CardStatus.EXPIRED);
         cardExpired.setUser(user);
 
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(cardExpired));
+        givenLockedCard(cardExpired);
         assertThrows(IllegalArgumentException.class, () -> cardService.depositToCard(2L, BigDecimal.valueOf(50)));
     }
 
@@ -160,6 +193,7 @@ class CardServiceTest {
 
         CardDto result = cardService.blockCard(1L, 1L);
         assertEquals(CardStatus.BLOCKED, result.getStatus());
+        verify(balanceSummaryService).onStatusChanged(1L, true, false);
     }
 
     @Test
@@ -233,14 +267,14 @@ class CardServiceTest {
         toCard.setUser(user);
         toCard.setBalance(BigDecimal.valueOf(100));
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        givenLockedCards(fromCard, toCard);
         when(cardRepository.save(any(Card.class))).thenAnswer(inv -> inv.getArgument(0));
 
         cardService.transferBetweenCards(user, new TransferRequest(1L, 2L, BigDecimal.valueOf(50)));
 
         assertEquals(BigDecimal.valueOf(150), fromCard.getBalance());
         assertEquals(BigDecimal.valueOf(150), toCard.getBalance());
+        verify(ledgerWriter).appendTransfer(1L, 2L, BigDecimal.valueOf(50));
     }
 
     @Test
@@ -258,8 +292,7 @@ class CardServiceTest {
         toCard.setUser(user);
         toCard.setBalance(BigDecimal.valueOf(100));
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        givenLockedCards(fromCard, toCard);
 
         assertThrows(IllegalArgumentException.class,
                 () -> cardService.transferBetweenCards(user, new TransferRequest(1L, 2L, BigDecimal.valueOf(50))));
@@ -283,10 +316,80 @@ class CardServiceTest {
         toCard.setUser(user);
         toCard.setBalance(BigDecimal.valueOf(100));
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        givenLockedCards(fromCard, toCard);
 
         assertThrows(AccessDeniedException.class,
                 () -> cardService.transferBetweenCards(user, new TransferRequest(1L, 2L, BigDecimal.valueOf(50))));
     }
+
+    @Test
+    void testDepositToCard_Atomic_Success() {
+        givenAtomicMode();
+
+        User user = new User();
+        user.setId(1L);
+
+        Card card = new Card();
+        card.setId(1L);
+        card.setBalance(BigDecimal.valueOf(150));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setUser(user);
+
+        when(cardRepository.depositIfActive(1L, BigDecimal.valueOf(50))).thenReturn(1);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+
+        CardDto result = cardService.depositToCard(1L, BigDecimal.valueOf(50));
+
+        assertEquals(BigDecimal.valueOf(150), result.getBalance());
+        verify(cardRepository, never()).save(any(Card.class));
+        verify(balanceSummaryService).onDeposit(1L, BigDecimal.valueOf(50));
+    }
+
+    @Test
+    void testDepositToCard_Atomic_Blocked() {
+        givenAtomicMode();
+
+        Card card = new Card();
+        card.setId(1L);
+        card.setStatus(CardStatus.BLOCKED);
+
+        when(cardRepository.depositIfActive(1L, BigDecimal.valueOf(50))).thenReturn(0);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.depositToCard(1L, BigDecimal.valueOf(50)));
+    }
+
+    @Test
+    void testTransferBetweenCards_Atomic_Success() {
+        givenAtomicMode();
+
+        when(cardRepository.debitIfSufficient(1L, 1L, BigDecimal.valueOf(50))).thenReturn(1);
+        when(cardRepository.credit(2L, 1L, BigDecimal.valueOf(50))).thenReturn(1);
+
+        cardService.transferBetweenCards(1L, new TransferRequest(1L, 2L, BigDecimal.valueOf(50)));
+
+        verify(cardRepository, never()).findById(anyLong());
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
+    @Test
+    void testTransferBetweenCards_Atomic_InsufficientFunds() {
+        givenAtomicMode();
+
+        User user = new User();
+        user.setId(1L);
+
+        Card fromCard = new Card();
+        fromCard.setId(1L);
+        fromCard.setUser(user);
+        fromCard.setBalance(BigDecimal.valueOf(20));
+
+        when(cardRepository.debitIfSufficient(1L, 1L, BigDecimal.valueOf(50))).thenReturn(0);
+        when(cardRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(fromCard));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferBetweenCards(1L, new TransferRequest(1L, 2L, BigDecimal.valueOf(50))));
+        assertEquals("Insufficient balance", e.getMessage());
+        verify(cardRepository, never()).credit(anyLong(), anyLong(), any());
+    }
 }
@@ -0,0 +1,173 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Один и тот же прогон для каждого app.transfer.mode: у каждого @Nested свой контекст.
+// У каждого контекста своя H2 in-memory (application-test.yml), поэтому и схема, и данные у режимов свои.
+@SpringBootTest
+@ActiveProfiles("test")
+class CardTransferConcurrencyTest {
+
+    private static final int HOT_CARDS = 4;
+    private static final int TRANSFERS = 400;
+    private static final int THREADS = 32;
+
+    @Nested
+    @TestPropertySource(properties = "app.transfer.mode=PESSIMISTIC")
+    class Pessimistic extends TransferScenario {
+
+        @Test
+        void testParallelTransfers_ConserveTotalBalance() throws Exception {
+            Outcome outcome = run("pessimistic");
+
+            assertEquals(0, outcome.gaveUp());
+            assertTrue(transferMetrics.getLockAcquisitions() >= outcome.succeeded());
+        }
+    }
+
+    // Версии конфликтуют постоянно: попыток больше, чем по умолчанию, чтобы большинство переводов прошло
+    @Nested
+    @TestPropertySource(properties = {"app.transfer.mode=OPTIMISTIC", "app.transfer.max-attempts=20"})
+    class Optimistic extends TransferScenario {
+
+        @Test
+        void testParallelTransfers_ConserveTotalBalance() throws Exception {
+            Outcome outcome = run("optimistic");
+
+            assertTrue(transferMetrics.getOperations() >= outcome.succeeded());
+            assertEquals(outcome.gaveUp(), transferMetrics.getFailures());
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "app.transfer.mode=ATOMIC")
+    class Atomic extends TransferScenario {
+
+        @Test
+        void testParallelTransfers_ConserveTotalBalance() throws Exception {
+            Outcome outcome = run("atomic");
+
+            assertEquals(0, outcome.gaveUp());
+            assertTrue(transferMetrics.getOperations() >= outcome.succeeded());
+        }
+    }
+
+    record Outcome(int succeeded, int rejected, int gaveUp) {
+    }
+
+    abstract static class TransferScenario {
+
+        @Autowired
+        CardService cardService;
+
+        @Autowired
+        CardRepository cardRepository;
+
+        @Autowired
+        UserRepository userRepository;
+
+        @Autowired
+        TransferMetrics transferMetrics;
+
+        // Общие проверки любого режима: деньги не появляются и не пропадают, баланс не уходит в минус
+        Outcome run(String mode) throws Exception {
+            User owner = new User();
+            owner.setUsername("stress-user-" + mode);
+            owner.setEmail("stress-user-" + mode + "@example.com");
+            owner.setPassword("not-used");
+            owner.setRole(Role.ROLE_USER);
+            owner = userRepository.save(owner);
+
+            List<Long> cardIds = new ArrayList<>();
+            for (int i = 0; i < HOT_CARDS; i++) {
+                cardIds.add(cardRepository.save(hotCard(owner, mode, i)).getId());
+            }
+            BigDecimal totalBefore = totalBalance(cardIds);
+
+            Long ownerId = owner.getId();
+            Random random = new Random(42);
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicInteger rejected = new AtomicInteger();
+            AtomicInteger gaveUp = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int i = 0; i < TRANSFERS; i++) {
+                int fromIndex = random.nextInt(HOT_CARDS);
+                int toIndex = (fromIndex + 1 + random.nextInt(HOT_CARDS - 1)) % HOT_CARDS;
+                TransferRequest request = new TransferRequest(
+                        cardIds.get(fromIndex), cardIds.get(toIndex), BigDecimal.valueOf(1 + random.nextInt(50)));
+
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        cardService.transferBetweenCards(ownerId, request);
+                        succeeded.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet(); // недостаточно средств — допустимый исход
+                    } catch (ConcurrencyFailureException e) {
+                        gaveUp.incrementAndGet(); // попытки исчерпаны, перевод откатился целиком
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+
+            assertEquals(TRANSFERS, succeeded.get() + rejected.get() + gaveUp.get());
+            assertTrue(succeeded.get() > 0);
+            assertEquals(0, totalBefore.compareTo(totalBalance(cardIds)));
+            for (Card card : cardRepository.findAllById(cardIds)) {
+                assertTrue(card.getBalance().signum() >= 0);
+            }
+            return new Outcome(succeeded.get(), rejected.get(), gaveUp.get());
+        }
+
+        private Card hotCard(User owner, String mode, int index) {
+            Card card = new Card();
+            card.setCardNumber("**** **** **** 000" + index);
+            card.setEncryptedCardNumber("stress-encrypted-" + mode + "-" + index);
+            card.setCardFingerprint("stress-fingerprint-" + mode + "-" + index);
+            card.setCardHolder("Stress Test");
+            card.setExpirationDate(LocalDate.now().plusYears(2));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.valueOf(1000));
+            card.setUser(owner);
+            return card;
+        }
+
+        private BigDecimal totalBalance(List<Long> cardIds) {
+            return cardRepository.findAllById(cardIds).stream()
+                    .map(Card::getBalance)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+}
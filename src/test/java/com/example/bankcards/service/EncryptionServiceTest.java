@@ -0,0 +1,43 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptionServiceTest {
+
+    private final EncryptionService encryptionService = new EncryptionService();
+
+    @Test
+    void testEncryptDecrypt_RoundTrip() {
+        String encrypted = encryptionService.encrypt("1234567812345678");
+
+        assertNotEquals("1234567812345678", encrypted);
+        assertEquals(encrypted, encryptionService.encrypt("1234567812345678"));
+        assertEquals("1234567812345678", encryptionService.decrypt(encrypted));
+    }
+
+    @Test
+    void testEncryptAll_PreservesOrderAndMatchesSingleCalls() {
+        List<String> cardNumbers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            cardNumbers.add(String.format("4%015d", i));
+        }
+
+        List<String> encrypted = encryptionService.encryptAll(cardNumbers);
+
+        assertEquals(cardNumbers.size(), encrypted.size());
+        assertEquals(encryptionService.encrypt(cardNumbers.get(500)), encrypted.get(500));
+        assertEquals(cardNumbers, encryptionService.decryptAll(encrypted));
+    }
+
+    @Test
+    void testDecrypt_InvalidInput() {
+        assertThrows(RuntimeException.class, () -> encryptionService.decrypt("not-encrypted"));
+        assertEquals("1111222233334444",
+                encryptionService.decrypt(encryptionService.encrypt("1111222233334444")));
+    }
+}
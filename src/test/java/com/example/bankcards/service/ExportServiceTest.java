@@ -0,0 +1,68 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ExportFormat;
+import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.StringWriter;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(cardRepository, userRepository, transactionRepository, new ObjectMapper());
+    }
+
+    @Test
+    void testExportUsers_Csv() {
+        when(userRepository.streamAllDtos()).thenReturn(Stream.of(
+                new UserDto(1L, "admin", "admin@bank.com", Role.ROLE_ADMIN),
+                new UserDto(2L, "doe, \"john\"", "john@bank.com", Role.ROLE_USER)));
+
+        StringWriter out = new StringWriter();
+        exportService.exportUsers(ExportFormat.CSV, out);
+
+        assertEquals("""
+                id,username,email,role
+                1,admin,admin@bank.com,ROLE_ADMIN
+                2,"doe, ""john""\",john@bank.com,ROLE_USER
+                """, out.toString());
+    }
+
+    @Test
+    void testExportUsers_Ndjson() {
+        when(userRepository.streamAllDtos()).thenReturn(Stream.of(
+                new UserDto(1L, "admin", "admin@bank.com", Role.ROLE_ADMIN)));
+
+        StringWriter out = new StringWriter();
+        exportService.exportUsers(ExportFormat.NDJSON, out);
+
+        assertEquals("{\"id\":1,\"username\":\"admin\",\"email\":\"admin@bank.com\",\"role\":\"ROLE_ADMIN\"}\n",
+                out.toString());
+    }
+}
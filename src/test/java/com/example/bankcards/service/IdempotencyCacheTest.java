@@ -0,0 +1,61 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    private IdempotencyCache.Entry entry(long ttlMillis) {
+        return new IdempotencyCache.Entry("hash", "\"ok\"", System.currentTimeMillis() + ttlMillis);
+    }
+
+    @Test
+    void testPut_EvictsEarliestExpiringWhenFull() {
+        IdempotencyCache cache = new IdempotencyCache(2);
+        cache.put("k1", entry(3_600_000));
+        cache.put("k2", entry(1_000));
+        cache.put("k3", entry(3_600_000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("k1"));
+        assertNull(cache.get("k2"));
+        assertNotNull(cache.get("k3"));
+    }
+
+    @Test
+    void testPut_EvictsExpiredBeforeLiveEntries() {
+        IdempotencyCache cache = new IdempotencyCache(2);
+        cache.put("k1", entry(-1));
+        cache.put("k2", entry(3_600_000));
+        cache.put("k3", entry(3_600_000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("k2"));
+        assertNotNull(cache.get("k3"));
+    }
+
+    @Test
+    void testPut_ReplacingKeyDoesNotTakeExtraSlot() {
+        IdempotencyCache cache = new IdempotencyCache(2);
+        cache.put("k1", entry(1_000));
+        cache.put("k1", entry(3_600_000));
+        cache.put("k2", entry(3_600_000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("k1"));
+        assertNotNull(cache.get("k2"));
+    }
+
+    @Test
+    void testEvictExpired_RemovesOnlyExpired() {
+        IdempotencyCache cache = new IdempotencyCache(10);
+        cache.put("k1", entry(-1));
+        cache.put("k2", entry(3_600_000));
+
+        cache.evictExpired();
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("k2"));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final TransferRequest REQUEST = new TransferRequest(1L, 2L, BigDecimal.TEN);
+
+    @Mock
+    private IdempotencyKeyRepository repository;
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(repository, new ObjectMapper(), 100, Duration.ofHours(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testExecute_ReplayReturnsStoredResultWithoutRunningAction() {
+        when(repository.tryClaim(eq(1L), eq("key"), eq("transfer"), anyString(), any(), any())).thenReturn(true);
+        AtomicInteger runs = new AtomicInteger();
+
+        String first = service.execute(1L, "key", "transfer", REQUEST, String.class,
+                complete -> "done #" + runs.incrementAndGet());
+        String second = service.execute(1L, "key", "transfer", REQUEST, String.class,
+                complete -> "done #" + runs.incrementAndGet());
+
+        assertEquals("done #1", first);
+        assertEquals("done #1", second);
+        assertEquals(1, runs.get());
+        verify(repository, times(1)).tryClaim(any(), any(), any(), any(), any(), any());
+        verify(repository).complete(1L, "key", "\"done #1\"");
+    }
+
+    @Test
+    void testExecute_ConcurrentDuplicateIsRejected() {
+        when(repository.tryClaim(any(), any(), any(), any(), any(), any())).thenReturn(false);
+        String hash = service.requestHash("transfer", REQUEST);
+        when(repository.find(1L, "key")).thenReturn(Optional.of(new IdempotencyKeyRepository.StoredKey(
+                "transfer", hash, IdempotencyKeyRepository.IN_PROGRESS, null, LocalDateTime.now(),
+                LocalDateTime.now().plusHours(1))));
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> service.execute(1L, "key", "transfer", REQUEST, String.class, complete -> fail("must not run")));
+    }
+
+    @Test
+    void testExecute_CompletedInDatabaseIsReplayed() {
+        when(repository.tryClaim(any(), any(), any(), any(), any(), any())).thenReturn(false);
+        String hash = service.requestHash("transfer", REQUEST);
+        when(repository.find(1L, "key")).thenReturn(Optional.of(new IdempotencyKeyRepository.StoredKey(
+                "transfer", hash, IdempotencyKeyRepository.COMPLETED, "\"stored\"", LocalDateTime.now(),
+                LocalDateTime.now().plusHours(1))));
+
+        String result = service.execute(1L, "key", "transfer", REQUEST, String.class, complete -> fail("must not run"));
+
+        assertEquals("stored", result);
+    }
+
+    @Test
+    void testExecute_SameKeyDifferentRequestIsRejected() {
+        when(repository.tryClaim(any(), any(), any(), any(), any(), any())).thenReturn(true);
+        service.execute(1L, "key", "transfer", REQUEST, String.class, complete -> "ok");
+
+        TransferRequest other = new TransferRequest(1L, 2L, BigDecimal.ONE);
+        assertThrows(IllegalArgumentException.class,
+                () -> service.execute(1L, "key", "transfer", other, String.class, complete -> "ok"));
+    }
+
+    @Test
+    void testExecute_FailedActionReleasesKey() {
+        when(repository.tryClaim(any(), any(), any(), any(), any(), any())).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> service.execute(1L, "key", "transfer", REQUEST,
+                String.class, complete -> {
+                    throw new IllegalArgumentException("Insufficient balance");
+                }));
+
+        verify(repository).release(1L, "key");
+        verify(repository, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void testExecute_ResponseIsStoredInsideOperation() {
+        when(repository.tryClaim(any(), any(), any(), any(), any(), any())).thenReturn(true);
+        List<String> events = new ArrayList<>();
+        doAnswer(invocation -> events.add("complete")).when(repository).complete(1L, "key", "\"ok\"");
+
+        service.execute(1L, "key", "transfer", REQUEST, String.class, complete -> {
+            events.add("operation");
+            complete.accept("ok");
+            events.add("commit");
+            return "ok";
+        });
+
+        assertEquals(List.of("operation", "complete", "commit"), events);
+        verify(repository, times(1)).complete(any(), any(), any());
+    }
+
+    // complete упал внутри транзакции операции: операция откатилась, ключ не должен остаться IN_PROGRESS
+    @Test
+    void testExecute_FailedCompleteReleasesKey() {
+        when(repository.tryClaim(any(), any(), any(), any(), any(), any())).thenReturn(true);
+        doThrow(new DataAccessResourceFailureException("connection lost")).when(repository).complete(any(), any(), any());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> service.execute(1L, "key", "transfer", REQUEST,
+                String.class, complete -> {
+                    complete.accept("ok");
+                    return "ok";
+                }));
+
+        verify(repository).release(1L, "key");
+    }
+
+    @Test
+    void testExecute_StaleInProgressKeyIsRetryable() {
+        when(repository.tryClaim(any(), any(), any(), any(), any(), any())).thenReturn(false, true);
+        String hash = service.requestHash("transfer", REQUEST);
+        when(repository.find(1L, "key")).thenReturn(Optional.of(new IdempotencyKeyRepository.StoredKey(
+                "transfer", hash, IdempotencyKeyRepository.IN_PROGRESS, null, LocalDateTime.now().minusMinutes(5),
+                LocalDateTime.now().plusHours(1))));
+
+        String result = service.execute(1L, "key", "transfer", REQUEST, String.class, complete -> "retried");
+
+        assertEquals("retried", result);
+        verify(repository).releaseStale(eq(1L), eq("key"), any());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.TransactionType;
+import com.example.bankcards.repository.LedgerOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerWriterTest {
+
+    @Mock
+    private LedgerOutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LedgerMetrics metrics;
+    private LedgerWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new LedgerMetrics();
+        writer = new LedgerWriter(outboxRepository, transactionManager, metrics, 2, 3, 0);
+    }
+
+    private LedgerOutboxRepository.Entry entry(long id) {
+        return new LedgerOutboxRepository.Entry(id, TransactionType.TRANSFER, BigDecimal.TEN, 1L, 2L,
+                LocalDateTime.now().minusSeconds(1));
+    }
+
+    @Test
+    void testDrain_MovesBatchesUntilOutboxIsEmpty() {
+        List<LedgerOutboxRepository.Entry> first = List.of(entry(1), entry(2));
+        List<LedgerOutboxRepository.Entry> second = List.of(entry(3));
+        when(outboxRepository.fetchBatch(2)).thenReturn(first, second);
+
+        writer.drain();
+
+        verify(outboxRepository).writeToLedger(first);
+        verify(outboxRepository).delete(first);
+        verify(outboxRepository).writeToLedger(second);
+        verify(outboxRepository).delete(second);
+        assertEquals(3, metrics.getDrained());
+        assertEquals(2, metrics.getBatches());
+        assertTrue(metrics.getLastDrainLatencyMillis() >= 1000);
+    }
+
+    @Test
+    void testAwaitCapacity_RejectsWhenQueueIsFull() {
+        metrics.recordAppended(3);
+
+        assertThrows(LedgerBackpressureException.class, () -> writer.awaitCapacity());
+        assertEquals(1, metrics.getRejected());
+    }
+
+    @Test
+    void testAwaitCapacity_PassesBelowLimit() {
+        metrics.recordAppended(2);
+
+        assertDoesNotThrow(() -> writer.awaitCapacity());
+    }
+}
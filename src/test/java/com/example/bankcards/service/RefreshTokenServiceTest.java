@@ -0,0 +1,75 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository repository;
+
+    private RefreshTokenService service() {
+        return new RefreshTokenService(repository, Duration.ofDays(14));
+    }
+
+    private RefreshTokenRepository.StoredRefreshToken stored(boolean revoked, LocalDateTime expiresAt) {
+        return new RefreshTokenRepository.StoredRefreshToken(1L, "family", revoked, expiresAt);
+    }
+
+    @Test
+    void testRotate_IssuesNewTokenInSameFamily() {
+        when(repository.findByHash(anyString())).thenReturn(Optional.of(stored(false, LocalDateTime.now().plusDays(1))));
+        when(repository.consume(anyString())).thenReturn(true);
+
+        RefreshTokenService.Rotation rotation = service().rotate("token");
+
+        assertEquals(1L, rotation.userId());
+        assertNotNull(rotation.refreshToken());
+        verify(repository).insert(anyString(), eq(1L), eq("family"), any(), any());
+    }
+
+    @Test
+    void testRotate_ExpiredTokenIsNotConsumed() {
+        when(repository.findByHash(anyString())).thenReturn(Optional.of(stored(false, LocalDateTime.now().minusMinutes(1))));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service().rotate("token"));
+
+        assertEquals("Refresh token has expired", e.getMessage());
+        verify(repository, never()).consume(anyString());
+        verify(repository, never()).revokeFamily(anyString());
+        verify(repository, never()).insert(anyString(), anyLong(), anyString(), any(), any());
+    }
+
+    @Test
+    void testRotate_ReusedTokenRevokesFamily() {
+        when(repository.findByHash(anyString())).thenReturn(Optional.of(stored(true, LocalDateTime.now().plusDays(1))));
+
+        assertThrows(IllegalArgumentException.class, () -> service().rotate("token"));
+
+        verify(repository).revokeFamily("family");
+        verify(repository, never()).consume(anyString());
+    }
+
+    @Test
+    void testRotate_LostConsumeRaceRevokesFamily() {
+        when(repository.findByHash(anyString())).thenReturn(Optional.of(stored(false, LocalDateTime.now().plusDays(1))));
+        when(repository.consume(anyString())).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> service().rotate("token"));
+
+        verify(repository).revokeFamily("family");
+        verify(repository, never()).insert(anyString(), anyLong(), anyString(), any(), any());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.dto.TransactionFilter;
+import com.example.bankcards.entity.TransactionType;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+    private static final TransactionFilter NO_FILTER = new TransactionFilter(null, null, null);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @InjectMocks
+    private TransactionService transactionService;
+
+    private TransactionDto tx(long id, int minutesAgo, Long from, Long to) {
+        return new TransactionDto(id, TransactionType.TRANSFER, BigDecimal.TEN, from, to, NOW.minusMinutes(minutesAgo));
+    }
+
+    @Test
+    void testGetCardTransactions_MergesBothSidesNewestFirst() {
+        when(cardRepository.existsByIdAndUserId(1L, 1L)).thenReturn(true);
+        when(transactionRepository.findCardHistorySlice(eq(1L), eq(true), any(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(tx(5, 1, 1L, 2L), tx(3, 3, 1L, 1L)));
+        when(transactionRepository.findCardHistorySlice(eq(1L), eq(false), any(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(tx(4, 2, 2L, 1L), tx(3, 3, 1L, 1L), tx(1, 5, 2L, 1L)));
+
+        CursorPage<TransactionDto> page = transactionService.getCardTransactions(1L, 1L, NO_FILTER, null, 2);
+
+        assertEquals(List.of(5L, 4L), page.getContent().stream().map(TransactionDto::getId).toList());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetCardTransactions_CursorContinuesAfterLastRow() {
+        when(cardRepository.existsByIdAndUserId(1L, 1L)).thenReturn(true);
+        when(transactionRepository.findCardHistorySlice(eq(1L), anyBoolean(), any(), any(), any(), anyInt()))
+                .thenReturn(List.of());
+
+        String cursor = KeysetCursor.encode(NOW.minusMinutes(2), 4L);
+        CursorPage<TransactionDto> page = transactionService.getCardTransactions(1L, 1L, NO_FILTER, cursor, 2);
+
+        verify(transactionRepository).findCardHistorySlice(1L, true, NO_FILTER, NOW.minusMinutes(2), 4L, 3);
+        assertTrue(page.getContent().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetCardTransactions_OtherUsersCard() {
+        when(cardRepository.existsByIdAndUserId(1L, 2L)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getCardTransactions(1L, 2L, NO_FILTER, null, 20));
+    }
+
+    @Test
+    void testGetCardTransactions_MalformedCursorIsBadRequest() {
+        when(cardRepository.existsByIdAndUserId(1L, 1L)).thenReturn(true);
+        String cursor = KeysetCursor.encode("yesterday", 4L);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> transactionService.getCardTransactions(1L, 1L, NO_FILTER, cursor, 20));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        verifyNoInteractions(transactionRepository);
+    }
+}